@@ -0,0 +1,73 @@
+package org.app.courseapp.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.model.SpecialistSlot;
+import org.app.courseapp.repository.SpecialistSlotRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Разовая миграция specialist_slots под unique (specialist_id, date, time).
+ * Старый setWeeklySchedule оставлял на забронированное время вторую, свободную строку —
+ * на такой таблице ddl-auto=update не может добавить ограничение (только пишет ошибку в лог),
+ * а без него ON CONFLICT в insertSlotIfAbsent падает на каждой брони по правилу.
+ * Здесь свободные дубликаты удаляются и ограничение добавляется, если его ещё нет.
+ * На чистой базе ничего не делает.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SpecialistSlotCleanup {
+
+    private final SpecialistSlotRepository slotRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Раньше пересборки индекса свободных слотов: она уже должна видеть таблицу без дубликатов
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void run() {
+        transactionTemplate.executeWithoutResult(status -> {
+            int removed = slotRepository.deleteDuplicateFreeSlots();
+            if (removed > 0) {
+                log.warn("Removed {} duplicate free specialist slots left by the old schedule generator", removed);
+            }
+
+            long conflicts = slotRepository.countDuplicateSlotGroups();
+            if (conflicts > 0) {
+                // Дважды забронированное время (или дубликаты с бронями) автоматически не разрешить
+                log.error("{} specialist slot times still have several booked rows; unique constraint {} "
+                        + "is not added and scheduled bookings will fail until they are resolved manually",
+                        conflicts, SpecialistSlot.UNIQUE_SLOT_CONSTRAINT);
+                return;
+            }
+
+            jdbcTemplate.execute("""
+                DO $$
+                BEGIN
+                    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = '%s') THEN
+                        ALTER TABLE specialist_slots
+                            ADD CONSTRAINT %s UNIQUE (specialist_id, date, time);
+                    END IF;
+                END $$
+                """.formatted(SpecialistSlot.UNIQUE_SLOT_CONSTRAINT, SpecialistSlot.UNIQUE_SLOT_CONSTRAINT));
+        });
+
+        // Правило создаётся только при сохранении расписания: у таких специалистов предлагаются
+        // лишь оставшиеся старые строки, после них — пусто, пока расписание не пересохранят
+        long withoutRule = slotRepository.countSpecialistsWithoutRule(LocalDate.now());
+        if (withoutRule > 0) {
+            log.warn("{} specialists have only legacy generated slots and no weekly rule; "
+                    + "they will show no availability once those slots pass until they save their schedule again",
+                    withoutRule);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.app.courseapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "transcoding")
+@Data
+public class TranscodingProperties {
+    private String ffmpegPath = "ffmpeg";
+    private String ffprobePath = "ffprobe";
+    private String preset = "slow";
+
+    // Сколько ffmpeg-процессов одновременно на одной ноде
+    private int workers = 2;
+    private int maxAttempts = 3;
+    private long pollIntervalMs = 3000;
+
+    // PROCESSING без heartbeat дольше этого — воркер умер, задача возвращается в очередь
+    private long staleAfterMinutes = 10;
+    // Как часто живой воркер отмечается, независимо от прогресса ffmpeg
+    private long heartbeatIntervalSeconds = 60;
+}
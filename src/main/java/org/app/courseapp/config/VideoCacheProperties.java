@@ -0,0 +1,22 @@
+package org.app.courseapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "video-cache")
+@Data
+public class VideoCacheProperties {
+    private boolean enabled = true;
+    private String directory = System.getProperty("java.io.tmpdir") + "/courseapp-video-cache";
+
+    // Общий бюджет диска под кэш, при превышении выкидываются давно не читанные объекты
+    private long maxSizeBytes = 10L * 1024 * 1024 * 1024;
+
+    // Объекты крупнее не кэшируются — один такой вытеснил бы весь горячий набор
+    private long maxObjectBytes = 1024L * 1024 * 1024;
+
+    // Параллельные докачки в кэш; остальные промахи просто отдаются из MinIO
+    private int fillWorkers = 2;
+}
@@ -5,6 +5,7 @@ import org.app.courseapp.security.jwt.AuthEntryPoint;
 import org.app.courseapp.security.jwt.JwtRequestFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -31,6 +32,24 @@ import java.util.List;
 @EnableMethodSecurity
 public class WebConfig {
 
+    // Открытые пути без пользователя: JwtRequestFilter на них не запускается
+    public static final String[] PUBLIC_PATHS = {
+            "/swagger-ui/**",
+            "/swagger-ui.html",
+            "/v3/api-docs/**",
+            "/v3/api-docs",
+            "/swagger-resources/**",
+            "/webjars/**",
+            "/actuator/health",
+            "/actuator/health/**",
+            "/actuator/metrics",
+            "/actuator/metrics/**",
+            "/actuator/info",
+            "/auth/**",
+            "/error/**",
+            "/dict/**"
+    };
+
     private final UserDetailsService userDetailsService;
     private final AuthEntryPoint unauthorizedHandler;
     private final JwtRequestFilter jwtRequestFilter;
@@ -43,24 +62,9 @@ public class WebConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers(
-                                "/swagger-ui/**",
-                                "/swagger-ui.html",
-                                "/v3/api-docs/**",
-                                "/v3/api-docs",
-                                "/swagger-resources/**",
-                                "/webjars/**"
-                        ).permitAll()
-                        .requestMatchers(
-                                "/actuator/health",
-                                "/actuator/health/**",
-                                "/actuator/metrics",
-                                "/actuator/metrics/**",
-                                "/actuator/info"
-                        ).permitAll()
-                        .requestMatchers("/auth/**").permitAll()
-                        .requestMatchers("/error/**").permitAll()
-                        .requestMatchers("/dict/**").permitAll()
+                        .requestMatchers(PUBLIC_PATHS).permitAll()
+                        // <video> не умеет слать Authorization — доступ проверяется по stream-токену в контроллере
+                        .requestMatchers(HttpMethod.GET, "/videos/*/stream").permitAll()
                         .requestMatchers("/admin/**").hasRole("ADMIN")
                         .requestMatchers("/experts/my/slots/**").hasRole("SPECIALIST")
                         .anyRequest().authenticated()
@@ -95,7 +99,8 @@ public class WebConfig {
         config.setAllowCredentials(true);
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD", "PATCH"));
         config.setAllowedHeaders(List.of("*"));
-        config.setExposedHeaders(List.of("Authorization", "Cache-Control", "Content-Type"));
+        config.setExposedHeaders(List.of("Authorization", "Cache-Control", "Content-Type",
+                JwtRequestFilter.TOKEN_REFRESH_HEADER));
         config.setMaxAge(3600L);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
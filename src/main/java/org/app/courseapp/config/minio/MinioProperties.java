@@ -16,4 +16,7 @@ public class MinioProperties {
     private String videoBucket;
     private String avatarBucket;
     private String documentBucket;
+
+    // Сколько подписанных GET-ссылок держать в памяти для повторной выдачи
+    private int presignedCacheSize = 10_000;
 }
\ No newline at end of file
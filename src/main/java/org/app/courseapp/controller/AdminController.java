@@ -14,7 +14,9 @@ import org.app.courseapp.dto.response.RegistrationQuestionDto;
 import org.app.courseapp.dto.response.VideoCategoryDto;
 import org.app.courseapp.dto.response.userProfile.BaseUserProfileDto;
 import org.app.courseapp.model.VideoCategory;
+import org.app.courseapp.security.PrincipalCache;
 import org.app.courseapp.service.*;
+import org.app.courseapp.service.impl.VideoCacheService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -32,6 +34,8 @@ public class AdminController {
     private final RegistrationQuestionService registrationQuestionService;
     private final VideoCategoryService videoCategoryService;
     private final ParentVideoAccessService parentVideoAccessService;
+    private final VideoCacheService videoCacheService;
+    private final PrincipalCache principalCache;
 
     @GetMapping("/profile/{email}")
     @Operation(summary = "Get user profile by email", description = "Get any user's profile (admin only)")
@@ -60,6 +64,18 @@ public class AdminController {
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/video-cache/stats")
+    @Operation(summary = "Video disk cache stats", description = "Hits, misses, evictions and disk usage of the local video cache")
+    public ResponseEntity<VideoCacheService.CacheStats> getVideoCacheStats() {
+        return ResponseEntity.ok(videoCacheService.getStats());
+    }
+
+    @GetMapping("/principal-cache/stats")
+    @Operation(summary = "Principal cache stats", description = "Hit ratio, invalidations and LISTEN state of the authentication principal cache")
+    public ResponseEntity<PrincipalCache.CacheStats> getPrincipalCacheStats() {
+        return ResponseEntity.ok(principalCache.getStats());
+    }
+
     @GetMapping("/video-categories")
     @Operation(summary = "Get all video categories")
     public ResponseEntity<List<VideoCategory>> getAllVideoCategories() {
@@ -8,6 +8,7 @@ import org.app.courseapp.dto.request.*;
 import org.app.courseapp.dto.response.*;
 import org.app.courseapp.service.SpecialistService;
 import org.app.courseapp.service.SpecialistSlotService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,6 +17,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 @RestController
@@ -42,9 +45,27 @@ public class ExpertController {
     }
 
     @GetMapping("/{id}/available-slots")
-    @Operation(summary = "Get available slots for current week")
-    public ResponseEntity<WeekSlotsDto> getAvailableSlots(@PathVariable Long id) {
-        return ResponseEntity.ok(slotService.getAvailableSlots(id));
+    @Operation(summary = "Get available slots", description = "Defaults to the rest of the current week; any range up to 92 days")
+    public ResponseEntity<WeekSlotsDto> getAvailableSlots(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(slotService.getAvailableSlots(id, from, to));
+    }
+
+    @GetMapping("/availability/search")
+    @Operation(summary = "Search specialists by free time",
+            description = "Earliest free slot per specialist within the date/time window, filtered by specialization and price")
+    public ResponseEntity<List<AvailableSpecialistDto>> searchAvailability(
+            @RequestParam(required = false) Long specializationId,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime timeFrom,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime timeTo,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(slotService.searchAvailability(
+                specializationId, maxPrice, from, to, timeFrom, timeTo, limit));
     }
 
     @GetMapping("/bookings/my")
@@ -54,6 +75,26 @@ public class ExpertController {
         return ResponseEntity.ok(slotService.getMyBookings(authentication.getName()));
     }
 
+    @PostMapping("/booking/hold")
+    @PreAuthorize("hasRole('ROLE_PARENT')")
+    @Operation(summary = "Hold a slot during checkout",
+            description = "Reserves the slot for a few minutes; confirm with /booking/book using the returned slotId")
+    public ResponseEntity<SlotHoldDto> holdSlot(
+            @Valid @RequestBody BookSlotRequest request,
+            Authentication authentication) {
+        return ResponseEntity.ok(slotService.holdSlot(request, authentication.getName()));
+    }
+
+    @DeleteMapping("/booking/hold/{slotId}")
+    @PreAuthorize("hasRole('ROLE_PARENT')")
+    @Operation(summary = "Release a held slot")
+    public ResponseEntity<Void> releaseHold(
+            @PathVariable Long slotId,
+            Authentication authentication) {
+        slotService.releaseHold(slotId, authentication.getName());
+        return ResponseEntity.ok().build();
+    }
+
     @PostMapping("/booking/book")
     @PreAuthorize("hasRole('ROLE_PARENT')")
     @Operation(summary = "Book a slot")
@@ -8,11 +8,14 @@ import org.app.courseapp.dto.request.AddSlotsRequest;
 import org.app.courseapp.dto.request.SetWeeklyScheduleRequest;
 import org.app.courseapp.dto.response.SpecialistSlotDto;
 import org.app.courseapp.service.SpecialistSlotService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 @RestController
@@ -24,9 +27,12 @@ public class ExpertSlotController {
     private final SpecialistSlotService slotService;
 
     @GetMapping
-    @Operation(summary = "Get my slots")
-    public ResponseEntity<List<SpecialistSlotDto>> getMySlots(Authentication authentication) {
-        return ResponseEntity.ok(slotService.getMySlots(authentication.getName()));
+    @Operation(summary = "Get my slots", description = "Free and booked slots computed from the weekly schedule; defaults to the next 4 weeks")
+    public ResponseEntity<List<SpecialistSlotDto>> getMySlots(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Authentication authentication) {
+        return ResponseEntity.ok(slotService.getMySlots(authentication.getName(), from, to));
     }
 
     @PostMapping
@@ -47,9 +53,19 @@ public class ExpertSlotController {
         return ResponseEntity.ok().build();
     }
 
+    @DeleteMapping
+    @Operation(summary = "Close a scheduled slot", description = "Removes a single date/time from the weekly schedule")
+    public ResponseEntity<Void> blockSlot(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam @DateTimeFormat(pattern = "HH:mm") LocalTime time,
+            Authentication authentication) {
+        slotService.blockSlot(date, time, authentication.getName());
+        return ResponseEntity.ok().build();
+    }
+
     @PostMapping("/schedule")
-    @Operation(summary = "Set weekly schedule — auto-generates slots",
-            description = "Example: Mon-Fri 09:00-19:00 every 60 min for 4 weeks ahead")
+    @Operation(summary = "Set weekly schedule",
+            description = "Example: Mon-Fri 09:00-19:00 every 60 min; slots are computed from the rule for any date range")
     public ResponseEntity<Void> setWeeklySchedule(
             @Valid @RequestBody SetWeeklyScheduleRequest request,
             Authentication authentication) {
@@ -1,5 +1,6 @@
 package org.app.courseapp.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
@@ -7,14 +8,13 @@ import org.app.courseapp.dto.response.LessonDto;
 import org.app.courseapp.dto.response.LessonReportDto;
 import org.app.courseapp.dto.response.ParentLessonReportFullDto;
 import org.app.courseapp.dto.response.PublicLessonReportDto;
+import org.app.courseapp.dto.response.VideoDto;
 import org.app.courseapp.service.LessonReportService;
 import org.app.courseapp.service.LessonService;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
@@ -37,18 +37,30 @@ public class LessonController {
     public ResponseEntity<LessonDto> getLesson(@PathVariable Long lessonId) {
         return ResponseEntity.ok(lessonService.getLessonById(lessonId));
     }
-    @PostMapping(value = "/{lessonId}/report", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PostMapping("/{lessonId}/report")
     //@PreAuthorize("hasRole('PARENT')")
     public ResponseEntity<LessonReportDto> submitReport(
             @PathVariable Long lessonId,
             @RequestParam("childReactionRating") @Min(1) @Max(5) Integer childReactionRating,
             @RequestParam(value = "comment", required = false) String comment,
-            @RequestParam(value = "videos", required = false) List<MultipartFile> videos
-    ) throws IOException {
+            // id завершённых докачиваемых загрузок (/uploads)
+            @RequestParam(value = "uploadIds", required = false) List<String> uploadIds
+    ) {
         return ResponseEntity.ok(
-                reportService.createOrUpdateReport(lessonId, childReactionRating, comment, videos)
+                reportService.createOrUpdateReport(lessonId, childReactionRating, comment, uploadIds)
         );
     }
+    @PutMapping("/{lessonId}/report/videos/stream")
+    @PreAuthorize("hasRole('PARENT')")
+    public ResponseEntity<VideoDto> uploadHomeworkVideoStream(
+            @PathVariable Long lessonId,
+            @RequestParam("filename") String filename,
+            HttpServletRequest request
+    ) throws IOException {
+        return ResponseEntity.ok(reportService.uploadHomeworkVideoStream(
+                lessonId, filename, request.getContentType(), request.getContentLengthLong(), request.getInputStream()));
+    }
+
     @GetMapping("/{lessonId}/report/my")
     @PreAuthorize("hasRole('PARENT')")
     public ResponseEntity<LessonReportDto> getMyReport(@PathVariable Long lessonId) {
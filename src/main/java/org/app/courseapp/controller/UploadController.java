@@ -0,0 +1,66 @@
+package org.app.courseapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.app.courseapp.dto.request.CreateUploadRequest;
+import org.app.courseapp.dto.response.UploadSessionDto;
+import org.app.courseapp.service.UploadService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Resumable Uploads", description = "Chunked uploads that survive dropped connections")
+public class UploadController {
+
+    private final UploadService uploadService;
+
+    @PostMapping
+    @Operation(summary = "Start upload", description = "Create an upload session; the response tells the chunk size and number of parts")
+    public ResponseEntity<UploadSessionDto> createSession(@Valid @RequestBody CreateUploadRequest request) {
+        return ResponseEntity.ok(uploadService.createSession(request));
+    }
+
+    @PostMapping("/direct")
+    @Operation(summary = "Start direct upload",
+            description = "Returns a presigned PUT URL; upload the file straight to storage, then call complete")
+    public ResponseEntity<UploadSessionDto> createDirectSession(@Valid @RequestBody CreateUploadRequest request) {
+        return ResponseEntity.ok(uploadService.createDirectSession(request));
+    }
+
+    @GetMapping("/{uploadId}")
+    @Operation(summary = "Get upload offset", description = "How many bytes are already stored and which part to send next")
+    public ResponseEntity<UploadSessionDto> getSession(@PathVariable String uploadId) {
+        return ResponseEntity.ok(uploadService.getSession(uploadId));
+    }
+
+    @PutMapping("/{uploadId}/parts/{partNumber}")
+    @Operation(summary = "Upload part", description = "Raw request body with exactly chunkSize bytes (the last part may be shorter)")
+    public ResponseEntity<UploadSessionDto> uploadPart(
+            @PathVariable String uploadId,
+            @PathVariable int partNumber,
+            HttpServletRequest request
+    ) throws IOException {
+        return ResponseEntity.ok(uploadService.uploadPart(
+                uploadId, partNumber, request.getContentLengthLong(), request.getInputStream()));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    @Operation(summary = "Complete upload", description = "Assemble the parts (or verify a direct upload); the upload id can then be attached to a video")
+    public ResponseEntity<UploadSessionDto> complete(@PathVariable String uploadId) {
+        return ResponseEntity.ok(uploadService.completeSession(uploadId));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    @Operation(summary = "Abort upload")
+    public ResponseEntity<Void> abort(@PathVariable String uploadId) {
+        uploadService.abortSession(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
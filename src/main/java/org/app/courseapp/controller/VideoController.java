@@ -1,27 +1,37 @@
 package org.app.courseapp.controller;
 
-import io.minio.GetObjectArgs;
-import io.minio.MinioClient;
-import io.minio.StatObjectArgs;
-import io.minio.StatObjectResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.app.courseapp.config.minio.MinioBucket;
+import org.app.courseapp.dto.request.ProgressSyncRequest;
 import org.app.courseapp.dto.request.UpdateProgressRequest;
+import org.app.courseapp.dto.response.LessonDto;
 import org.app.courseapp.dto.response.VideoDto;
+import org.app.courseapp.dto.response.VideoHeatmapDto;
+import org.app.courseapp.dto.response.VideoProcessingStatusDto;
 import org.app.courseapp.model.Video;
 import org.app.courseapp.repository.VideoRepository;
+import org.app.courseapp.security.StreamTokenService;
 import org.app.courseapp.service.VideoService;
+import org.app.courseapp.service.impl.MinioService;
+import org.app.courseapp.service.impl.TranscodingService;
+import org.app.courseapp.service.impl.VideoCacheService;
+import org.app.courseapp.util.ByteRange;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -31,8 +41,13 @@ import java.util.List;
 public class VideoController {
 
     private final VideoService videoService;
-    private final MinioClient minioClient;
+    private final MinioService minioService;
+    private final StreamTokenService streamTokenService;
     private final VideoRepository videoRepository;
+    private final VideoCacheService videoCacheService;
+
+    // Один ответ на Range не больше 8 МБ — плеер дозапросит следующий кусок
+    private static final long MAX_RANGE_BYTES = 8L * 1024 * 1024;
 
     @GetMapping("/lesson/{lessonId}")
     @Operation(summary = "Get videos by lesson", description = "Get all accessible videos for a lesson")
@@ -46,6 +61,12 @@ public class VideoController {
         return ResponseEntity.ok(videoService.getVideoById(videoId));
     }
 
+    @GetMapping("/{videoId}/processing")
+    @Operation(summary = "Get processing status", description = "Get transcoding status and progress of an uploaded video")
+    public ResponseEntity<VideoProcessingStatusDto> getProcessingStatus(@PathVariable Long videoId) {
+        return ResponseEntity.ok(videoService.getProcessingStatus(videoId));
+    }
+
     @GetMapping("/{videoId}/has-access")
     @Operation(summary = "Check video access", description = "Check if current user has access to video")
     public ResponseEntity<Boolean> hasAccessToVideo(@PathVariable Long videoId) {
@@ -56,12 +77,26 @@ public class VideoController {
     @Operation(summary = "Update video progress", description = "Update watch progress for a video")
     public ResponseEntity<Void> updateProgress(
             @PathVariable Long videoId,
-            @RequestBody UpdateProgressRequest request
+            @Valid @RequestBody UpdateProgressRequest request
     ) {
-        videoService.updateProgress(videoId, request.getWatchedSeconds());
+        videoService.updateProgress(videoId, request.getWatchedSeconds(), request.getFromSeconds());
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/progress/sync")
+    @Operation(summary = "Sync offline progress",
+            description = "Applies a batch of watch events (max watched seconds, earliest completion) and returns server progress of the affected lessons")
+    public ResponseEntity<List<LessonDto>> syncProgress(@Valid @RequestBody ProgressSyncRequest request) {
+        return ResponseEntity.ok(videoService.syncProgress(request));
+    }
+
+    @GetMapping("/{videoId}/heatmap")
+    @PreAuthorize("hasAnyRole('CURATOR', 'ADMIN')")
+    @Operation(summary = "Get watch heatmap", description = "How many viewers watched each 5-second segment of the video")
+    public ResponseEntity<VideoHeatmapDto> getHeatmap(@PathVariable Long videoId) {
+        return ResponseEntity.ok(videoService.getHeatmap(videoId));
+    }
+
     @PutMapping("/{videoId}/complete")
     @Operation(summary = "Mark video as completed", description = "Mark a video as fully watched")
     public ResponseEntity<Void> markAsCompleted(@PathVariable Long videoId) {
@@ -77,70 +112,117 @@ public class VideoController {
     }
 
     @GetMapping("/{id}/stream")
-    @Operation(summary = "Stream video", description = "Stream video with range support and access check")
-    public ResponseEntity<byte[]> streamVideo(
+    @Operation(summary = "Stream video", description = "Stream video with range support; pass the stream token from VideoDto.streamUrl to skip DB lookups")
+    public ResponseEntity<StreamingResponseBody> streamVideo(
             @PathVariable Long id,
-            @RequestHeader(value = "Range", required = false) String range
-    ) throws Exception {
-
-        if (!videoService.hasAccessToVideo(id)) {
-            throw new RuntimeException("Access denied: You don't have access to this video");
+            @RequestHeader(value = "Range", required = false) String range,
+            @RequestParam(value = "token", required = false) String token
+    ) {
+        StreamTokenService.StreamClaims claims = token != null
+                ? streamTokenService.verify(token, id)
+                : resolveStreamClaims(id);
+        if (claims == null) {
+            throw new RuntimeException("Invalid or expired stream token");
         }
 
-        Video video = videoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Video not found"));
+        MinioBucket bucket = claims.bucket();
+        String objectKey = claims.objectKey();
+        VideoCacheService.CachedObject cached = videoCacheService.lookup(bucket, objectKey);
+        long fileSize = cached != null
+                ? cached.size()
+                : claims.size() != null
+                ? claims.size()
+                : minioService.getObjectSize(bucket, objectKey);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf(
+                claims.contentType() != null ? claims.contentType() : "video/mp4"));
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
 
-        StatObjectResponse stat = minioClient.statObject(
-                StatObjectArgs.builder()
-                        .bucket(video.getBucketName())
-                        .object(video.getObjectKey())
-                        .build()
-        );
-
-        long fileSize = stat.size();
-        long start = 0;
-        long end = fileSize - 1;
-
-        if (range != null && range.startsWith("bytes=")) {
-            String[] parts = range.replace("bytes=", "").split("-");
-            start = Long.parseLong(parts[0]);
-            if (parts.length > 1 && !parts[1].isEmpty()) {
-                end = Long.parseLong(parts[1]);
-            }
+        // Не-bytes и синтаксически неверный Range игнорируются (RFC 7233) — весь файл с 200
+        if (range == null || !ByteRange.isApplicable(range)) {
+            headers.setContentLength(fileSize);
+            return new ResponseEntity<>(
+                    out -> copyRange(cached, bucket, objectKey, 0, fileSize, out),
+                    headers, HttpStatus.OK);
         }
 
-        long contentLength = end - start + 1;
+        ByteRange byteRange = ByteRange.parse(range, fileSize, MAX_RANGE_BYTES);
+        if (byteRange == null) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+            return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
 
-        InputStream inputStream = minioClient.getObject(
-                GetObjectArgs.builder()
-                        .bucket(video.getBucketName())
-                        .object(video.getObjectKey())
-                        .offset(start)
-                        .length(contentLength)
-                        .build()
-        );
+        headers.set(HttpHeaders.CONTENT_RANGE, byteRange.contentRange(fileSize));
+        headers.setContentLength(byteRange.length());
 
-        byte[] data = inputStream.readNBytes((int) contentLength);
+        return new ResponseEntity<>(
+                out -> copyRange(cached, bucket, objectKey, byteRange.start(), byteRange.length(), out),
+                headers, HttpStatus.PARTIAL_CONTENT);
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.valueOf(video.getContentType()));
-        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
-        headers.set(HttpHeaders.CONTENT_RANGE,
-                "bytes " + start + "-" + end + "/" + fileSize);
-        headers.setContentLength(contentLength);
+    private void copyRange(VideoCacheService.CachedObject cached, MinioBucket bucket, String objectKey,
+                           long offset, long length, OutputStream out) throws IOException {
+        // Между lookup и стримом объект могли вытеснить — тогда читаем из MinIO
+        if (cached == null || !videoCacheService.transferTo(bucket, objectKey, offset, length, out)) {
+            minioService.copyRange(bucket, objectKey, offset, length, out);
+        }
+    }
+
+    // Старый путь без токена: проверка доступа через БД на каждый запрос
+    private StreamTokenService.StreamClaims resolveStreamClaims(Long id) {
+        if (!videoService.hasAccessToVideo(id)) {
+            throw new RuntimeException("Access denied: You don't have access to this video");
+        }
 
-        return new ResponseEntity<>(data, headers, HttpStatus.PARTIAL_CONTENT);
+        Video video = videoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Video not found"));
+
+        return new StreamTokenService.StreamClaims(
+                video.getId(), null, MinioBucket.valueOf(video.getBucketName()), video.getObjectKey(),
+                null, video.getContentType(), Long.MAX_VALUE);
     }
 
-    @PostMapping(value = "/lesson/{lessonId}/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @GetMapping("/{id}/hls/{playlist:.+\\.m3u8}")
+    @Operation(summary = "Get HLS playlist", description = "Master or variant playlist with access check; segments are served by object storage")
+    public ResponseEntity<String> getHlsPlaylist(
+            @PathVariable Long id,
+            @PathVariable String playlist
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.valueOf(TranscodingService.HLS_PLAYLIST_CONTENT_TYPE))
+                // Ссылки на сегменты подписаны на 2 часа — кэшировать плейлист дольше нельзя
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePrivate())
+                .body(videoService.getHlsPlaylist(id, playlist));
+    }
+
+    @PostMapping("/lesson/{lessonId}/upload")
     @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Attach lesson videos", description = "Create lesson videos from completed resumable uploads (/uploads)")
     public ResponseEntity<List<VideoDto>> uploadLessonVideo(
             @PathVariable Long lessonId,
-            @RequestParam("file") List<MultipartFile> files,
+            @RequestParam("uploadId") List<String> uploadIds,
             @RequestParam("title") String title,
             @RequestParam("categoryId") Long categoryId
+    ) {
+        return ResponseEntity.ok(videoService.uploadLessonVideo(lessonId, uploadIds, title, categoryId));
+    }
+
+    @PutMapping("/lesson/{lessonId}/upload/stream")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Upload lesson video (streaming)",
+            description = "Raw request body is streamed straight into object storage; transcode=false stores a ready H.264/AAC MP4 as is")
+    public ResponseEntity<VideoDto> uploadLessonVideoStream(
+            @PathVariable Long lessonId,
+            @RequestParam("title") String title,
+            @RequestParam("categoryId") Long categoryId,
+            @RequestParam("filename") String filename,
+            @RequestParam(value = "transcode", defaultValue = "true") boolean transcode,
+            HttpServletRequest request
     ) throws IOException {
-        return ResponseEntity.ok(videoService.uploadLessonVideo(lessonId, files, title, categoryId));
+        return ResponseEntity.ok(videoService.uploadLessonVideoStream(
+                lessonId, title, categoryId, filename,
+                request.getContentType(), request.getContentLengthLong(), request.getInputStream(), transcode));
     }
 
     @GetMapping("/lesson/{lessonId}/category/{categoryId}")
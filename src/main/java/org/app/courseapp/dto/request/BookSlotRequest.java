@@ -1,10 +1,22 @@
 package org.app.courseapp.dto.request;
 
-import jakarta.validation.constraints.NotNull;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Слот задаётся либо slotId (уже материализованный), либо specialistId + date + time (слот из расписания)
 @Data
 public class BookSlotRequest {
-    @NotNull
     private Long slotId;
+
+    private Long specialistId;
+
+    private LocalDate date;
+
+    @JsonFormat(pattern = "HH:mm")
+    @Schema(type = "string", example = "10:00")
+    private LocalTime time;
 }
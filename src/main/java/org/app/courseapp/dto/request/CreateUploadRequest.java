@@ -0,0 +1,16 @@
+package org.app.courseapp.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class CreateUploadRequest {
+    @NotBlank
+    private String filename;
+    private String contentType;
+    @NotNull
+    @Positive
+    private Long totalSize;
+}
@@ -0,0 +1,37 @@
+package org.app.courseapp.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Накопленные офлайн события просмотра; порядок и повторы не важны — слияние коммутативно
+@Data
+public class ProgressSyncRequest {
+    @NotEmpty
+    @Size(max = 500)
+    private List<@Valid Event> events;
+
+    @Data
+    public static class Event {
+        @NotNull
+        private Long videoId;
+
+        @NotNull
+        @PositiveOrZero
+        private Long watchedSeconds;
+
+        // Начало отрезка, просмотренного без перемотки до watchedSeconds; null — известна только позиция
+        @PositiveOrZero
+        private Long fromSeconds;
+
+        // Когда клиент засчитал видео досмотренным, null — не досмотрено. Засчитывается,
+        // только если присланные и сохранённые отрезки покрывают видео
+        private LocalDateTime completedAt;
+    }
+}
@@ -1,10 +1,16 @@
 package org.app.courseapp.dto.request;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 
 @Data
 public class UpdateProgressRequest {
     @NotNull
+    @PositiveOrZero
     private Long watchedSeconds;
+
+    // Начало отрезка, просмотренного с прошлого heartbeat'а; без него отрезок выводится на сервере
+    @PositiveOrZero
+    private Long fromSeconds;
 }
@@ -0,0 +1,17 @@
+package org.app.courseapp.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@Builder
+public class AvailableSpecialistDto {
+    private SpecialistCardDto specialist;
+    // Ближайший день со свободными слотами в запрошенном окне и сами слоты этого дня
+    private LocalDate date;
+    private List<LocalTime> times;
+}
@@ -0,0 +1,18 @@
+package org.app.courseapp.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Data
+@Builder
+public class SlotHoldDto {
+    private Long slotId;
+    private Long specialistId;
+    private LocalDate date;
+    private LocalTime time;
+    private LocalDateTime heldUntil;
+}
@@ -0,0 +1,27 @@
+package org.app.courseapp.dto.response;
+
+import lombok.*;
+import org.app.courseapp.model.UploadSessionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    private String uploadId;
+    private UploadSessionStatus status;
+    private Long totalSize;
+    private Long chunkSize;
+    private Integer totalParts;
+    // Сколько байт подряд с начала файла уже на сервере — с этого места и докачивать
+    private Long receivedBytes;
+    private Integer nextPartNumber;
+    private List<Integer> receivedParts;
+    private LocalDateTime expiresAt;
+    // Только для прямой загрузки: presigned PUT в хранилище
+    private String uploadUrl;
+}
@@ -1,6 +1,7 @@
 package org.app.courseapp.dto.response;
 
 import lombok.*;
+import org.app.courseapp.model.VideoStatus;
 import org.app.courseapp.model.VideoType;
 
 @Getter
@@ -15,8 +16,12 @@ public class VideoDto {
     private Long categoryId;
     private String categoryName;
     private String videoUrl;
+    private String manifestUrl;
+    private String streamUrl;
     private Long durationSeconds;
     private Long fileSizeBytes;
     private Boolean isCompleted;
     private Long watchedSeconds;
+    private VideoStatus status;
+    private Integer processingProgress;
 }
\ No newline at end of file
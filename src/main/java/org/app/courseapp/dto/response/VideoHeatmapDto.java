@@ -0,0 +1,18 @@
+package org.app.courseapp.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class VideoHeatmapDto {
+    private Long videoId;
+    private int bucketSeconds;
+    // Сколько зрителей с картой просмотра учтено
+    private int viewers;
+    // counts[i] — сколько зрителей видели отрезок [i * bucketSeconds, (i + 1) * bucketSeconds)
+    private int[] counts;
+    private LocalDateTime computedAt;
+}
@@ -0,0 +1,17 @@
+package org.app.courseapp.dto.response;
+
+import lombok.*;
+import org.app.courseapp.model.VideoStatus;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoProcessingStatusDto {
+    private Long videoId;
+    private VideoStatus status;
+    private Integer progress;
+    private Integer attempts;
+    private String error;
+}
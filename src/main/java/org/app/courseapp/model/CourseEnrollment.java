@@ -34,9 +34,14 @@ public class CourseEnrollment {
     @Column(name = "enrolled_at", updatable = false)
     private LocalDateTime enrolledAt;
 
+    // Поддерживается из user_lesson_completion при закрытии урока, не пересчитывается на чтении
     @Column(name = "progress_percentage")
     private long progressPercentage = 0;
 
+    // Первый непройденный урок; без FK — урок можно удалить, указатель починит rebuild
+    @Column(name = "current_lesson_id")
+    private Long currentLessonId;
+
     @Column(name = "completed")
     private Boolean completed = false;
 
@@ -0,0 +1,53 @@
+package org.app.courseapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Материализованные агрегаты оценок курса. Обновляется инкрементально в той же транзакции,
+ * что и сам отзыв; периодический rebuild пересчитывает всё из course_reviews и чинит расхождения.
+ */
+@Entity
+@Table(name = "course_rating_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseRatingSummary {
+
+    @Id
+    @Column(name = "course_id")
+    private Long courseId;
+
+    @Column(name = "rating_count", nullable = false)
+    private long ratingCount;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    @Column(name = "one_star", nullable = false)
+    private long oneStar;
+
+    @Column(name = "two_star", nullable = false)
+    private long twoStar;
+
+    @Column(name = "three_star", nullable = false)
+    private long threeStar;
+
+    @Column(name = "four_star", nullable = false)
+    private long fourStar;
+
+    @Column(name = "five_star", nullable = false)
+    private long fiveStar;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Среднее выводится из суммы и количества, поэтому никогда с ними не расходится
+    public double getAverageRating() {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
+}
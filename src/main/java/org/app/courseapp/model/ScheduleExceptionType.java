@@ -0,0 +1,8 @@
+package org.app.courseapp.model;
+
+public enum ScheduleExceptionType {
+    // Разовый слот сверх недельного правила
+    EXTRA,
+    // Слот из правила, который специалист закрыл
+    BLOCKED
+}
@@ -0,0 +1,37 @@
+package org.app.courseapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.app.courseapp.model.users.Specialist;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Entity
+@Table(name = "specialist_schedule_exceptions",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"specialist_id", "date", "time"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SpecialistScheduleException {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "specialist_id", nullable = false)
+    private Specialist specialist;
+
+    @Column(name = "date", nullable = false)
+    private LocalDate date;
+
+    @Column(name = "time", nullable = false)
+    private LocalTime time;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private ScheduleExceptionType type;
+}
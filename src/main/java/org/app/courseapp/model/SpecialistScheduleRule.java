@@ -0,0 +1,62 @@
+package org.app.courseapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.app.courseapp.model.users.Specialist;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+
+/**
+ * Недельное расписание специалиста как правило повторения.
+ * Свободные слоты из него вычисляются на лету для любого окна дат,
+ * строка в specialist_slots появляется только при бронировании.
+ */
+@Entity
+@Table(name = "specialist_schedule_rules")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SpecialistScheduleRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "specialist_id", nullable = false, unique = true)
+    private Specialist specialist;
+
+    // Бит (DayOfWeek.getValue() - 1) выставлен — день рабочий
+    @Column(name = "work_days_mask", nullable = false)
+    private int workDaysMask;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    @Column(name = "slot_duration_minutes", nullable = false)
+    private int slotDurationMinutes;
+
+    // Правило не порождает слоты раньше этой даты
+    @Column(name = "valid_from", nullable = false)
+    private LocalDate validFrom;
+
+    public boolean worksOn(DayOfWeek day) {
+        return (workDaysMask & (1 << (day.getValue() - 1))) != 0;
+    }
+
+    public static int toMask(Collection<DayOfWeek> days) {
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= 1 << (day.getValue() - 1);
+        }
+        return mask;
+    }
+}
@@ -6,10 +6,14 @@ import org.app.courseapp.model.users.Parent;
 import org.app.courseapp.model.users.Specialist;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "specialist_slots")
+@Table(name = "specialist_slots",
+        uniqueConstraints = @UniqueConstraint(
+                name = SpecialistSlot.UNIQUE_SLOT_CONSTRAINT,
+                columnNames = {"specialist_id", "date", "time"}))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,6 +21,9 @@ import java.time.LocalTime;
 @Builder
 public class SpecialistSlot {
 
+    // Имя фиксировано: на старых данных ограничение добавляет SpecialistSlotCleanup после удаления дубликатов
+    public static final String UNIQUE_SLOT_CONSTRAINT = "uk_specialist_slots_specialist_date_time";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -38,4 +45,16 @@ public class SpecialistSlot {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "booked_by_parent_id")
     private Parent bookedBy;
+
+    // Временное удержание слота на время оформления: истёкшее удержание равносильно отсутствию
+    @Column(name = "held_until")
+    private LocalDateTime heldUntil;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "held_by_parent_id")
+    private Parent heldBy;
+
+    public boolean isHeldAt(LocalDateTime moment) {
+        return heldUntil != null && heldUntil.isAfter(moment);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package org.app.courseapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.app.courseapp.model.users.User;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сессия докачиваемой загрузки. Чанки лежат в MinIO под partsPrefix,
+ * при завершении склеиваются серверным compose в objectKey.
+ */
+@Builder
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class UploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private UploadSessionStatus status = UploadSessionStatus.ACTIVE;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Long chunkSize;
+
+    // Клиент грузит одним PUT по presigned URL прямо в MinIO, чанков нет
+    @Column(name = "direct")
+    @Builder.Default
+    private Boolean direct = false;
+
+    @Column(name = "parts_prefix", nullable = false)
+    private String partsPrefix;
+
+    @Column(name = "object_key", nullable = false)
+    private String objectKey;
+
+    @CreatedDate
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public int getTotalParts() {
+        return (int) Math.max(1, (totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    public long expectedPartSize(int partNumber) {
+        if (partNumber < getTotalParts()) {
+            return chunkSize;
+        }
+        return totalSize - chunkSize * (getTotalParts() - 1);
+    }
+
+    public String partKey(int partNumber) {
+        return partsPrefix + String.format("%05d", partNumber);
+    }
+}
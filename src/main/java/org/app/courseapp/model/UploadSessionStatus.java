@@ -0,0 +1,7 @@
+package org.app.courseapp.model;
+
+public enum UploadSessionStatus {
+    ACTIVE,
+    COMPLETED,
+    CONSUMED
+}
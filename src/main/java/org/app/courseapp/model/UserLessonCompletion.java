@@ -0,0 +1,39 @@
+package org.app.courseapp.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Пройденный урок: все его LESSON-видео досмотрены. Строка появляется, когда последнее
+ * видео урока переходит в completed; периодический rebuild пересчитывает всё из video_progress.
+ * Без внешних ключей — удаление урока или пользователя не упирается в эту таблицу, сироты чистит rebuild.
+ */
+@Entity
+@Table(name = "user_lesson_completion",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "lesson_id"}),
+        indexes = @Index(name = "idx_user_lesson_completion_user_course", columnList = "user_id, course_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLessonCompletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "lesson_id", nullable = false)
+    private Long lessonId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+}
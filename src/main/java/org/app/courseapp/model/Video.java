@@ -51,6 +51,33 @@ public class Video {
     @Column(name = "content_type")
     private String contentType;
 
+    // master.m3u8 HLS-лесенки; рядом лежат вариантные плейлисты и сегменты
+    @Column(name = "hls_playlist_key")
+    private String hlsPlaylistKey;
+
+    // Статус обработки (ffmpeg). null у старых записей — считаем READY
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    @Builder.Default
+    private VideoStatus status = VideoStatus.READY;
+
+    // Оригинал загрузки, пока он не перекодирован
+    @Column(name = "source_object_key")
+    private String sourceObjectKey;
+
+    @Column(name = "processing_progress")
+    private Integer processingProgress;
+
+    @Column(name = "processing_attempts")
+    @Builder.Default
+    private Integer processingAttempts = 0;
+
+    @Column(name = "processing_error", length = 1000)
+    private String processingError;
+
+    @Column(name = "processing_heartbeat_at")
+    private LocalDateTime processingHeartbeatAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "lesson_id", nullable = false)
     private Lesson lesson;
@@ -59,6 +86,11 @@ public class Video {
     @JoinColumn(name = "uploaded_by_user_id")
     private User uploadedBy;
 
+    // Отчёт родителя, к которому приложено домашнее видео; у видео уроков — null
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "lesson_report_id")
+    private LessonReport report;
+
     @CreatedDate
     @Column(name = "uploaded_at", updatable = false)
     private LocalDateTime uploadedAt;
@@ -66,4 +98,8 @@ public class Video {
     @Builder.Default
     @OneToMany(mappedBy = "video", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<VideoProgress> progress = new ArrayList<>();
+
+    public boolean isReady() {
+        return status == null || status == VideoStatus.READY;
+    }
 }
\ No newline at end of file
@@ -47,4 +47,8 @@ public class VideoProgress {
 
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
+
+    // Какие отрезки видео реально просмотрены (см. WatchBitmap). Пишется только upsert'ом с OR
+    @Column(name = "watched_buckets", columnDefinition = "bit varying", insertable = false, updatable = false)
+    private String watchedBuckets;
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package org.app.courseapp.model;
+
+public enum VideoStatus {
+    PENDING,
+    PROCESSING,
+    READY,
+    FAILED
+}
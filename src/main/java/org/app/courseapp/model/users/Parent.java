@@ -30,6 +30,12 @@ public class Parent extends User {
     @Builder.Default
     private Set<VideoCategory> allowedVideoCategories = new HashSet<>();
 
+    // Растёт при каждом изменении доступов: токены с грантами старой версии не принимаются.
+    // Меняется только атомарным UPDATE (ParentRepository.incrementAccessVersion) — сущность его не пишет
+    @Column(name = "access_version", updatable = false)
+    @Builder.Default
+    private Long accessVersion = 0L;
+
     public void addChild(Child child) {
         children.add(child);
         child.setParent(this);
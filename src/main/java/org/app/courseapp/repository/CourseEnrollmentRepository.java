@@ -2,6 +2,8 @@ package org.app.courseapp.repository;
 
 import org.app.courseapp.model.CourseEnrollment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +12,9 @@ import java.util.Optional;
 @Repository
 public interface CourseEnrollmentRepository extends JpaRepository<CourseEnrollment, Long> {
     List<CourseEnrollment> findByUserId(Long userId);
+
+    @Query("SELECT e FROM CourseEnrollment e JOIN FETCH e.course c LEFT JOIN FETCH c.createdBy WHERE e.user.id = :userId")
+    List<CourseEnrollment> findByUserIdWithCourse(@Param("userId") Long userId);
     List<CourseEnrollment> findByCourseId(Long courseId);
     Optional<CourseEnrollment> findByUserIdAndCourseId(Long userId, Long courseId);
     boolean existsByUserIdAndCourseId(Long userId, Long courseId);
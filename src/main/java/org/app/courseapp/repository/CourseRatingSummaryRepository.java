@@ -0,0 +1,75 @@
+package org.app.courseapp.repository;
+
+import org.app.courseapp.model.CourseRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CourseRatingSummaryRepository extends JpaRepository<CourseRatingSummary, Long> {
+
+    // Upsert дельты: строка появляется при первой оценке курса, дальше только инкременты
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO course_rating_summary
+            (course_id, rating_count, rating_sum, one_star, two_star, three_star, four_star, five_star, updated_at)
+        VALUES (:courseId, :countDelta, :sumDelta, :oneDelta, :twoDelta, :threeDelta, :fourDelta, :fiveDelta, now())
+        ON CONFLICT (course_id) DO UPDATE SET
+            rating_count = course_rating_summary.rating_count + EXCLUDED.rating_count,
+            rating_sum   = course_rating_summary.rating_sum + EXCLUDED.rating_sum,
+            one_star     = course_rating_summary.one_star + EXCLUDED.one_star,
+            two_star     = course_rating_summary.two_star + EXCLUDED.two_star,
+            three_star   = course_rating_summary.three_star + EXCLUDED.three_star,
+            four_star    = course_rating_summary.four_star + EXCLUDED.four_star,
+            five_star    = course_rating_summary.five_star + EXCLUDED.five_star,
+            updated_at   = EXCLUDED.updated_at
+        """, nativeQuery = true)
+    void applyDelta(@Param("courseId") Long courseId,
+                    @Param("countDelta") long countDelta,
+                    @Param("sumDelta") long sumDelta,
+                    @Param("oneDelta") long oneDelta,
+                    @Param("twoDelta") long twoDelta,
+                    @Param("threeDelta") long threeDelta,
+                    @Param("fourDelta") long fourDelta,
+                    @Param("fiveDelta") long fiveDelta);
+
+    // Полный пересчёт из course_reviews одним statement'ом, включая курсы без оценок
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO course_rating_summary
+            (course_id, rating_count, rating_sum, one_star, two_star, three_star, four_star, five_star, updated_at)
+        SELECT c.id,
+               COUNT(r.id),
+               COALESCE(SUM(r.rating), 0),
+               COUNT(r.id) FILTER (WHERE r.rating = 1),
+               COUNT(r.id) FILTER (WHERE r.rating = 2),
+               COUNT(r.id) FILTER (WHERE r.rating = 3),
+               COUNT(r.id) FILTER (WHERE r.rating = 4),
+               COUNT(r.id) FILTER (WHERE r.rating = 5),
+               now()
+        FROM courses c
+        LEFT JOIN course_reviews r ON r.course_id = c.id
+        GROUP BY c.id
+        ON CONFLICT (course_id) DO UPDATE SET
+            rating_count = EXCLUDED.rating_count,
+            rating_sum   = EXCLUDED.rating_sum,
+            one_star     = EXCLUDED.one_star,
+            two_star     = EXCLUDED.two_star,
+            three_star   = EXCLUDED.three_star,
+            four_star    = EXCLUDED.four_star,
+            five_star    = EXCLUDED.five_star,
+            updated_at   = EXCLUDED.updated_at
+        """, nativeQuery = true)
+    int rebuildAll();
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM course_rating_summary s WHERE NOT EXISTS (SELECT 1 FROM courses c WHERE c.id = s.course_id)",
+            nativeQuery = true)
+    int deleteOrphans();
+}
@@ -3,8 +3,10 @@ package org.app.courseapp.repository;
 import org.app.courseapp.model.Course;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +15,18 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     Optional<Course> findByCourseOrder(int order);
     List<Course> findAllByOrderByCourseOrderAsc();
     boolean existsByTitle(String title);
+    List<Course> findByCourseOrderIn(Collection<Integer> orders);
+
+    @Query("SELECT c FROM Course c LEFT JOIN FETCH c.createdBy ORDER BY c.courseOrder ASC")
+    List<Course> findAllWithCreatorOrderByCourseOrder();
+
+    interface CourseKeyword {
+        Long getCourseId();
+        String getKeyword();
+    }
+
+    @Query("SELECT c.id AS courseId, k AS keyword FROM Course c JOIN c.keywords k WHERE c.id IN :courseIds")
+    List<CourseKeyword> findKeywordsByCourseIds(@Param("courseIds") Collection<Long> courseIds);
 
     @Query("SELECT COALESCE(MAX(c.courseOrder), 0) + 1 FROM Course c")
     int findNextCourseOrder();
@@ -4,11 +4,15 @@ import org.app.courseapp.model.CourseReview;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface CourseReviewRepository extends JpaRepository<CourseReview, Long> {
@@ -27,8 +31,12 @@ public interface CourseReviewRepository extends JpaRepository<CourseReview, Long
     Page<CourseReview> findAllByReviewTextIsNotNullOrderByLikeCountDescCreatedAtDesc(
             Pageable pageable);
 
-    @Query("SELECT AVG(r.rating) FROM CourseReview r WHERE r.course.id = :courseId")
-    Double findAverageRatingByCourseId(Long courseId);
+    // Атомарный инкремент в БД: параллельные лайки не теряются и не ждут блокировку строки в приложении
+    @Transactional
+    @Modifying
+    @Query("UPDATE CourseReview r SET r.likeCount = COALESCE(r.likeCount, 0) + :delta WHERE r.id = :id")
+    int addLikes(@Param("id") Long id, @Param("delta") int delta);
 
-    Long countByCourseId(Long courseId);
+    @Query("SELECT r.course.id FROM CourseReview r WHERE r.user.id = :userId")
+    Set<Long> findReviewedCourseIds(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -2,10 +2,14 @@ package org.app.courseapp.repository;
 
 import org.app.courseapp.model.LessonReport;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface LessonReportRepository extends JpaRepository<LessonReport, Long> {
@@ -13,4 +17,8 @@ public interface LessonReportRepository extends JpaRepository<LessonReport, Long
     List<LessonReport> findByLessonId(Long lessonId);
     List<LessonReport> findByParentId(Long parentId);
     boolean existsByLessonIdAndParentId(Long lessonId, Long parentId);
+
+    @Query("SELECT r.lesson.id FROM LessonReport r WHERE r.parent.id = :parentId AND r.lesson.id IN :lessonIds")
+    Set<Long> findReportedLessonIds(@Param("parentId") Long parentId,
+                                    @Param("lessonIds") Collection<Long> lessonIds);
 }
@@ -2,11 +2,23 @@ package org.app.courseapp.repository;
 
 import org.app.courseapp.model.users.Parent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Repository
 public interface ParentRepository extends JpaRepository<Parent, Long> {
     Optional<Parent> findByEmail(String email);
-}
\ No newline at end of file
+
+    // Инкремент в одном UPDATE: параллельные изменения доступов не теряют версию друг друга
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE parents SET access_version = COALESCE(access_version, 0) + 1 WHERE id = :id
+        """, nativeQuery = true)
+    int incrementAccessVersion(@Param("id") Long id);
+}
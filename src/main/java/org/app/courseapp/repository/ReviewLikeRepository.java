@@ -2,7 +2,11 @@ package org.app.courseapp.repository;
 
 import org.app.courseapp.model.ReviewLike;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,7 +17,36 @@ public interface ReviewLikeRepository extends JpaRepository<ReviewLike, Long> {
     Optional<ReviewLike> findByUserIdAndCourseReviewId(Long userId, Long courseReviewId);
     boolean existsByUserIdAndCourseReviewId(Long userId, Long courseReviewId);
 
+    // Insert-or-ignore: повторный лайк упирается в unique (user_id, course_review_id) и возвращает 0
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO review_likes (user_id, course_review_id, created_at)
+        VALUES (:userId, :reviewId, now())
+        ON CONFLICT DO NOTHING
+        """, nativeQuery = true)
+    int insertCourseReviewLike(@Param("userId") Long userId, @Param("reviewId") Long reviewId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReviewLike l WHERE l.user.id = :userId AND l.courseReview.id = :reviewId")
+    int deleteCourseReviewLike(@Param("userId") Long userId, @Param("reviewId") Long reviewId);
+
     // specialist
     Optional<ReviewLike> findByUserIdAndSpecialistReviewId(Long userId, Long specialistReviewId);
     boolean existsByUserIdAndSpecialistReviewId(Long userId, Long specialistReviewId);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO review_likes (user_id, specialist_review_id, created_at)
+        VALUES (:userId, :reviewId, now())
+        ON CONFLICT DO NOTHING
+        """, nativeQuery = true)
+    int insertSpecialistReviewLike(@Param("userId") Long userId, @Param("reviewId") Long reviewId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReviewLike l WHERE l.user.id = :userId AND l.specialistReview.id = :reviewId")
+    int deleteSpecialistReviewLike(@Param("userId") Long userId, @Param("reviewId") Long reviewId);
 }
\ No newline at end of file
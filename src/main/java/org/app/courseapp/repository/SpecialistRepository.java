@@ -2,9 +2,11 @@ package org.app.courseapp.repository;
 
 import org.app.courseapp.model.users.Specialist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -18,4 +20,12 @@ public interface SpecialistRepository extends JpaRepository<Specialist, Long> {
         ORDER BY s.rating DESC NULLS LAST
     """)
     List<Specialist> findAllBySpecialization(@Param("specializationId") Long specializationId);
+
+    @Query("SELECT s.id FROM Specialist s")
+    List<Long> findAllIds();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Specialist s SET s.sessionCount = COALESCE(s.sessionCount, 0) + :delta WHERE s.id = :id")
+    int addSessions(@Param("id") Long id, @Param("delta") int delta);
 }
@@ -4,8 +4,10 @@ import org.app.courseapp.model.SpecialistReview;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -18,4 +20,9 @@ public interface SpecialistReviewRepository extends JpaRepository<SpecialistRevi
     Double findAverageRatingBySpecialistId(@Param("specialistId") Long specialistId);
     Long countBySpecialistId(Long specialistId);
     List<SpecialistReview> findByUserId(Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE SpecialistReview r SET r.likeCount = COALESCE(r.likeCount, 0) + :delta WHERE r.id = :id")
+    int addLikes(@Param("id") Long id, @Param("delta") int delta);
 }
@@ -0,0 +1,29 @@
+package org.app.courseapp.repository;
+
+import org.app.courseapp.model.SpecialistScheduleException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SpecialistScheduleExceptionRepository extends JpaRepository<SpecialistScheduleException, Long> {
+
+    List<SpecialistScheduleException> findBySpecialistIdAndDateBetween(Long specialistId, LocalDate from, LocalDate to);
+
+    List<SpecialistScheduleException> findBySpecialistIdAndDate(Long specialistId, LocalDate date);
+
+    Optional<SpecialistScheduleException> findBySpecialistIdAndDateAndTime(Long specialistId, LocalDate date, LocalTime time);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SpecialistScheduleException e WHERE e.specialist.id = :specialistId AND e.date >= :from")
+    int deleteFutureExceptions(@Param("specialistId") Long specialistId, @Param("from") LocalDate from);
+}
@@ -0,0 +1,12 @@
+package org.app.courseapp.repository;
+
+import org.app.courseapp.model.SpecialistScheduleRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SpecialistScheduleRuleRepository extends JpaRepository<SpecialistScheduleRule, Long> {
+    Optional<SpecialistScheduleRule> findBySpecialistId(Long specialistId);
+}
@@ -1,32 +1,118 @@
 package org.app.courseapp.repository;
 
 import org.app.courseapp.model.SpecialistSlot;
+import org.app.courseapp.model.users.Parent;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface SpecialistSlotRepository extends JpaRepository<SpecialistSlot, Long> {
 
+    // Условный UPDATE: из параллельных бронирований одного слота ровно одно получит 1, остальные 0.
+    // Чужое действующее удержание тоже блокирует бронирование
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE SpecialistSlot s
+        SET s.booked = true, s.bookedBy = :parent, s.heldUntil = null, s.heldBy = null
+        WHERE s.id = :slotId AND s.booked = false
+        AND (s.heldUntil IS NULL OR s.heldUntil <= :now OR s.heldBy = :parent)
+    """)
+    int claimSlot(@Param("slotId") Long slotId,
+                  @Param("parent") Parent parent,
+                  @Param("now") LocalDateTime now);
+
+    // Удержание ставится тем же условным UPDATE: свободен, не забронирован, не удержан другим
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE SpecialistSlot s
+        SET s.heldUntil = :until, s.heldBy = :parent
+        WHERE s.specialist.id = :specialistId AND s.date = :date AND s.time = :time AND s.booked = false
+        AND (s.heldUntil IS NULL OR s.heldUntil <= :now OR s.heldBy = :parent)
+    """)
+    int holdSlotAt(@Param("specialistId") Long specialistId,
+                   @Param("date") LocalDate date,
+                   @Param("time") LocalTime time,
+                   @Param("parent") Parent parent,
+                   @Param("now") LocalDateTime now,
+                   @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE SpecialistSlot s
+        SET s.heldUntil = :until, s.heldBy = :parent
+        WHERE s.id = :slotId AND s.booked = false
+        AND (s.heldUntil IS NULL OR s.heldUntil <= :now OR s.heldBy = :parent)
+    """)
+    int holdSlot(@Param("slotId") Long slotId,
+                 @Param("parent") Parent parent,
+                 @Param("now") LocalDateTime now,
+                 @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE SpecialistSlot s
+        SET s.heldUntil = null, s.heldBy = null
+        WHERE s.id = :slotId AND s.booked = false AND s.heldBy = :parent
+    """)
+    int releaseHold(@Param("slotId") Long slotId, @Param("parent") Parent parent);
+
     @Query("""
         SELECT s FROM SpecialistSlot s
-        WHERE s.specialist.id = :specialistId
-        AND s.date BETWEEN :from AND :to
-        AND s.booked = false
-        ORDER BY s.date, s.time
+        WHERE s.booked = false AND s.heldUntil > :now
     """)
-    List<SpecialistSlot> findAvailableSlots(
-            @Param("specialistId") Long specialistId,
-            @Param("from") LocalDate from,
-            @Param("to") LocalDate to
-    );
+    List<SpecialistSlot> findActiveHolds(@Param("now") LocalDateTime now);
 
-    List<SpecialistSlot> findBySpecialistIdOrderByDateAscTimeAsc(Long specialistId);
+    // Виртуальный слот из правила материализуется только в момент бронирования.
+    // Параллельные вставки одного слота упираются в unique (specialist_id, date, time)
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO specialist_slots (specialist_id, date, time, is_booked)
+        VALUES (:specialistId, :date, :time, false)
+        ON CONFLICT (specialist_id, date, time) DO NOTHING
+        """, nativeQuery = true)
+    int insertSlotIfAbsent(@Param("specialistId") Long specialistId,
+                           @Param("date") LocalDate date,
+                           @Param("time") LocalTime time);
 
-    boolean existsBySpecialistIdAndDateAndTime(Long specialistId, LocalDate date, java.time.LocalTime time);
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE SpecialistSlot s
+        SET s.booked = true, s.bookedBy = :parent, s.heldUntil = null, s.heldBy = null
+        WHERE s.specialist.id = :specialistId AND s.date = :date AND s.time = :time AND s.booked = false
+        AND (s.heldUntil IS NULL OR s.heldUntil <= :now OR s.heldBy = :parent)
+    """)
+    int claimSlotAt(@Param("specialistId") Long specialistId,
+                    @Param("date") LocalDate date,
+                    @Param("time") LocalTime time,
+                    @Param("parent") Parent parent,
+                    @Param("now") LocalDateTime now);
+
+    @Query("""
+        SELECT s FROM SpecialistSlot s JOIN FETCH s.specialist
+        WHERE s.specialist.id = :specialistId AND s.date = :date AND s.time = :time
+    """)
+    Optional<SpecialistSlot> findWithSpecialistAt(@Param("specialistId") Long specialistId,
+                                                  @Param("date") LocalDate date,
+                                                  @Param("time") LocalTime time);
+
+    List<SpecialistSlot> findBySpecialistIdAndDateBetween(Long specialistId, LocalDate from, LocalDate to);
+
+    @Query("SELECT s FROM SpecialistSlot s JOIN FETCH s.specialist WHERE s.id = :slotId")
+    Optional<SpecialistSlot> findWithSpecialistById(@Param("slotId") Long slotId);
 
     @Modifying
     @Query("""
@@ -39,4 +125,37 @@ public interface SpecialistSlotRepository extends JpaRepository<SpecialistSlot,
             @Param("specialistId") Long specialistId,
             @Param("from") LocalDate from
     );
-}
\ No newline at end of file
+
+    // Старый setWeeklySchedule перегенерировал слоты поверх забронированных — на одно время
+    // оставались занятая и свободная строки. Свободный дубликат удаляется: остаётся занятая строка,
+    // а среди свободных — самая ранняя. Строки, на которые ссылаются брони, не трогаются
+    @Transactional
+    @Modifying
+    @Query(value = """
+        DELETE FROM specialist_slots s
+        USING specialist_slots keeper
+        WHERE keeper.specialist_id = s.specialist_id AND keeper.date = s.date AND keeper.time = s.time
+        AND keeper.id <> s.id
+        AND s.is_booked = false
+        AND (keeper.is_booked = true OR keeper.id < s.id)
+        AND NOT EXISTS (SELECT 1 FROM bookings b WHERE b.slot_id = s.id)
+        """, nativeQuery = true)
+    int deleteDuplicateFreeSlots();
+
+    @Query(value = """
+        SELECT count(*) FROM (
+            SELECT 1 FROM specialist_slots
+            GROUP BY specialist_id, date, time
+            HAVING count(*) > 1
+        ) duplicates
+        """, nativeQuery = true)
+    long countDuplicateSlotGroups();
+
+    // Специалисты, у которых будущие свободные слоты есть только в виде старых сгенерированных строк
+    @Query(value = """
+        SELECT count(DISTINCT s.specialist_id) FROM specialist_slots s
+        WHERE s.date >= :from AND s.is_booked = false
+        AND NOT EXISTS (SELECT 1 FROM specialist_schedule_rules r WHERE r.specialist_id = s.specialist_id)
+        """, nativeQuery = true)
+    long countSpecialistsWithoutRule(@Param("from") LocalDate from);
+}
@@ -0,0 +1,57 @@
+package org.app.courseapp.repository;
+
+import org.app.courseapp.model.UploadSession;
+import org.app.courseapp.model.UploadSessionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    Optional<UploadSession> findByIdAndUserId(String id, Long userId);
+    List<UploadSession> findByUpdatedAtBefore(LocalDateTime before);
+
+    // Скаляр читается из БД, а не из persistence context'а, где сессия могла остаться ACTIVE
+    @Query("SELECT u.status FROM UploadSession u WHERE u.id = :id")
+    Optional<UploadSessionStatus> findStatusById(@Param("id") String id);
+
+    // Продление только активной сессии: save() всей сущности мог бы вернуть ACTIVE поверх COMPLETED
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE UploadSession u
+        SET u.updatedAt = :now
+        WHERE u.id = :id
+        AND u.status = org.app.courseapp.model.UploadSessionStatus.ACTIVE
+    """)
+    int touchActive(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    // Из двух параллельных complete переход выполняет ровно один
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE UploadSession u
+        SET u.status = org.app.courseapp.model.UploadSessionStatus.COMPLETED, u.updatedAt = :now
+        WHERE u.id = :id
+        AND u.status = org.app.courseapp.model.UploadSessionStatus.ACTIVE
+    """)
+    int markCompleted(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE UploadSession u
+        SET u.status = org.app.courseapp.model.UploadSessionStatus.CONSUMED
+        WHERE u.id = :id
+        AND u.user.id = :userId
+        AND u.status = org.app.courseapp.model.UploadSessionStatus.COMPLETED
+    """)
+    int markConsumed(@Param("id") String id, @Param("userId") Long userId);
+}
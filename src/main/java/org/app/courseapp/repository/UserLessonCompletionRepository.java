@@ -0,0 +1,128 @@
+package org.app.courseapp.repository;
+
+import org.app.courseapp.model.UserLessonCompletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserLessonCompletionRepository extends JpaRepository<UserLessonCompletion, Long> {
+
+    // Урок l пройден пользователем u: есть LESSON-видео, и все они досмотрены
+    String LESSON_COMPLETED = """
+         EXISTS (SELECT 1 FROM videos v WHERE v.lesson_id = l.id AND v.type = 'LESSON')
+        AND NOT EXISTS (
+            SELECT 1 FROM videos v
+            WHERE v.lesson_id = l.id AND v.type = 'LESSON'
+            AND NOT EXISTS (
+                SELECT 1 FROM video_progress vp
+                WHERE vp.video_id = v.id AND vp.user_id = u.user_id AND vp.is_completed = true
+            )
+        )
+        """;
+
+    // Прогресс и текущий урок записи на курс — только из user_lesson_completion, по индексу (user_id, course_id).
+    // Текущий урок — первый непройденный с видео, если все пройдены — последний
+    String ENROLLMENT_PROGRESS = """
+         progress_percentage = COALESCE(
+            (SELECT COUNT(*) FROM user_lesson_completion c
+             WHERE c.user_id = e.user_id AND c.course_id = e.course_id) * 100
+            / NULLIF((SELECT COUNT(*) FROM lessons l WHERE l.course_id = e.course_id), 0), 0),
+        current_lesson_id = COALESCE(
+            (SELECT l.id FROM lessons l
+             WHERE l.course_id = e.course_id
+             AND EXISTS (SELECT 1 FROM videos v WHERE v.lesson_id = l.id AND v.type = 'LESSON')
+             AND NOT EXISTS (SELECT 1 FROM user_lesson_completion c
+                             WHERE c.user_id = e.user_id AND c.lesson_id = l.id)
+             ORDER BY l.day_number LIMIT 1),
+            (SELECT l.id FROM lessons l WHERE l.course_id = e.course_id ORDER BY l.day_number DESC LIMIT 1))
+        """;
+
+    interface CourseLessonCount {
+        Long getCourseId();
+        Long getLessonCount();
+    }
+
+    @Query("""
+        SELECT c.courseId AS courseId, COUNT(c) AS lessonCount
+        FROM UserLessonCompletion c
+        WHERE c.userId = :userId AND c.courseId IN :courseIds
+        GROUP BY c.courseId
+    """)
+    List<CourseLessonCount> countByCourse(@Param("userId") Long userId,
+                                          @Param("courseIds") Collection<Long> courseIds);
+
+    // 0 — урок ещё не пройден или уже учтён
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO user_lesson_completion (user_id, lesson_id, course_id, completed_at)
+        SELECT u.user_id, l.id, l.course_id, now()
+        FROM (SELECT CAST(:userId AS bigint) AS user_id) u
+        JOIN lessons l ON l.id = :lessonId
+        WHERE""" + LESSON_COMPLETED + """
+        ON CONFLICT (user_id, lesson_id) DO NOTHING
+        """, nativeQuery = true)
+    int insertIfCompleted(@Param("userId") Long userId, @Param("lessonId") Long lessonId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE course_enrollments e SET" + ENROLLMENT_PROGRESS
+            + " WHERE e.user_id = :userId AND e.course_id = :courseId", nativeQuery = true)
+    int refreshEnrollment(@Param("userId") Long userId, @Param("courseId") Long courseId);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE course_enrollments
+        SET completed = true, completed_at = now()
+        WHERE user_id = :userId AND course_id = :courseId
+        AND progress_percentage >= 100 AND completed IS NOT TRUE
+        """, nativeQuery = true)
+    int completeEnrollmentIfDone(@Param("userId") Long userId, @Param("courseId") Long courseId);
+
+    // ─── Полный пересчёт ─────────────────────────────────────────────────────
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO user_lesson_completion (user_id, lesson_id, course_id, completed_at)
+        SELECT u.user_id, l.id, l.course_id, now()
+        FROM (
+            SELECT DISTINCT vp.user_id, v.lesson_id
+            FROM video_progress vp
+            JOIN videos v ON v.id = vp.video_id
+            WHERE vp.is_completed = true AND v.type = 'LESSON'
+        ) u
+        JOIN lessons l ON l.id = u.lesson_id
+        WHERE""" + LESSON_COMPLETED + """
+        ON CONFLICT (user_id, lesson_id) DO NOTHING
+        """, nativeQuery = true)
+    int insertMissing();
+
+    // Урок удалён, у него появилось новое видео, прогресс сброшен — отметка больше не верна
+    @Transactional
+    @Modifying
+    @Query(value = """
+        DELETE FROM user_lesson_completion c
+        WHERE NOT EXISTS (
+            SELECT 1 FROM (SELECT c.user_id AS user_id) u
+            JOIN lessons l ON l.id = c.lesson_id
+            WHERE""" + LESSON_COMPLETED + """
+        )
+        """, nativeQuery = true)
+    int deleteStale();
+
+    // Завершённые записи не трогаются: курс мог быть завершён вручную (completeCourse)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE course_enrollments e SET" + ENROLLMENT_PROGRESS
+            + " WHERE e.completed IS NOT TRUE", nativeQuery = true)
+    int refreshAllEnrollments();
+}
@@ -2,8 +2,14 @@ package org.app.courseapp.repository;
 
 import org.app.courseapp.model.VideoProgress;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +19,71 @@ public interface VideoProgressRepository extends JpaRepository<VideoProgress, Lo
     List<VideoProgress> findByUserId(Long userId);
     List<VideoProgress> findByVideoId(Long videoId);
     List<VideoProgress> findByUserIdAndVideoLessonId(Long userId, Long lessonId);
+    List<VideoProgress> findByUserIdAndVideoLessonIdIn(Long userId, Collection<Long> lessonIds);
+
+    // Пачка прогресса одним statement'ом (heartbeat'ы, офлайн-синхронизация). Слияние без конфликтов:
+    // секунды — максимум, завершение — самое раннее и не откатывается, просмотренные отрезки — OR.
+    // completedAt = null — не завершено, watchedBuckets = null — отрезки неизвестны.
+    // Карта другой длины (видео перекодировали) заменяет старую: OR для bit varying требует равной длины
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO video_progress
+            (user_id, video_id, watched_seconds, is_completed, started_at, last_watched_at, completed_at, watched_buckets)
+        SELECT t.user_id, t.video_id, t.watched_seconds, t.completed_at IS NOT NULL, now(), now(),
+               t.completed_at, t.watched_buckets
+        FROM unnest(CAST(:userIds AS bigint[]), CAST(:videoIds AS bigint[]),
+                    CAST(:watchedSeconds AS bigint[]), CAST(:completedAt AS timestamp[]),
+                    CAST(:watchedBuckets AS varbit[]))
+             AS t(user_id, video_id, watched_seconds, completed_at, watched_buckets)
+        ON CONFLICT (user_id, video_id) DO UPDATE SET
+            watched_seconds = GREATEST(COALESCE(video_progress.watched_seconds, 0), EXCLUDED.watched_seconds),
+            is_completed    = COALESCE(video_progress.is_completed, false) OR EXCLUDED.is_completed,
+            completed_at    = LEAST(video_progress.completed_at, EXCLUDED.completed_at),
+            last_watched_at = EXCLUDED.last_watched_at,
+            watched_buckets = CASE
+                WHEN EXCLUDED.watched_buckets IS NULL THEN video_progress.watched_buckets
+                WHEN video_progress.watched_buckets IS NULL
+                     OR length(video_progress.watched_buckets) <> length(EXCLUDED.watched_buckets)
+                    THEN EXCLUDED.watched_buckets
+                ELSE video_progress.watched_buckets | EXCLUDED.watched_buckets
+            END
+        """, nativeQuery = true)
+    void upsertProgressBatch(@Param("userIds") Long[] userIds,
+                             @Param("videoIds") Long[] videoIds,
+                             @Param("watchedSeconds") Long[] watchedSeconds,
+                             @Param("completedAt") LocalDateTime[] completedAt,
+                             @Param("watchedBuckets") String[] watchedBuckets);
+
+    interface WatchState {
+        Long getWatchedSeconds();
+        String getWatchedBuckets();
+    }
+
+    @Query(value = """
+        SELECT watched_seconds AS watchedSeconds, CAST(watched_buckets AS text) AS watchedBuckets
+        FROM video_progress
+        WHERE user_id = :userId AND video_id = :videoId
+        """, nativeQuery = true)
+    Optional<WatchState> findWatchState(@Param("userId") Long userId, @Param("videoId") Long videoId);
+
+    interface VideoWatchState extends WatchState {
+        Long getVideoId();
+    }
+
+    @Query(value = """
+        SELECT video_id AS videoId, watched_seconds AS watchedSeconds,
+               CAST(watched_buckets AS text) AS watchedBuckets
+        FROM video_progress
+        WHERE user_id = :userId AND video_id IN (:videoIds)
+        """, nativeQuery = true)
+    List<VideoWatchState> findWatchStates(@Param("userId") Long userId,
+                                          @Param("videoIds") Collection<Long> videoIds);
+
+    @Query(value = """
+        SELECT CAST(watched_buckets AS text)
+        FROM video_progress
+        WHERE video_id = :videoId AND watched_buckets IS NOT NULL
+        """, nativeQuery = true)
+    List<String> findWatchedBucketsByVideoId(@Param("videoId") Long videoId);
 }
\ No newline at end of file
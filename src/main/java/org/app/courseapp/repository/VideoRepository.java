@@ -2,11 +2,20 @@ package org.app.courseapp.repository;
 
 import org.app.courseapp.model.Video;
 import org.app.courseapp.model.VideoCategory;
+import org.app.courseapp.model.VideoStatus;
 import org.app.courseapp.model.VideoType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface VideoRepository extends JpaRepository<Video, Long> {
@@ -14,4 +23,146 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
     List<Video> findByLessonIdAndType(Long lessonId, VideoType type);
     List<Video> findByLessonIdAndTypeAndCategory(Long lessonId, VideoType type, VideoCategory category);
     List<Video> findByLessonIdAndUploadedById(Long lessonId, Long userId);
-}
\ No newline at end of file
+
+    // Все видео нескольких уроков одним запросом, категория сразу подтягивается для VideoDto
+    @Query("""
+        SELECT v FROM Video v
+        LEFT JOIN FETCH v.category
+        WHERE v.lesson.id IN :lessonIds AND v.type = :type
+        ORDER BY v.id ASC
+    """)
+    List<Video> findByLessonIdInAndTypeWithCategory(@Param("lessonIds") Collection<Long> lessonIds,
+                                                    @Param("type") VideoType type);
+
+    @Query("""
+        SELECT v FROM Video v
+        LEFT JOIN FETCH v.lesson
+        LEFT JOIN FETCH v.category
+        WHERE v.id IN :ids
+    """)
+    List<Video> findByIdInWithLessonAndCategory(@Param("ids") Collection<Long> ids);
+
+    interface LessonRef {
+        Long getLessonId();
+        Long getCourseId();
+    }
+
+    @Query("""
+        SELECT l.id AS lessonId, l.course.id AS courseId
+        FROM Video v JOIN v.lesson l
+        WHERE v.id = :videoId AND v.type = org.app.courseapp.model.VideoType.LESSON
+    """)
+    Optional<LessonRef> findLessonRefByVideoId(@Param("videoId") Long videoId);
+
+    // ─── Transcoding queue ────────────────────────────────────────────────────
+
+    @Query("SELECT v.id FROM Video v WHERE v.status = :status ORDER BY v.id ASC")
+    List<Long> findIdsByStatus(@Param("status") VideoStatus status, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Video v
+        SET v.status = org.app.courseapp.model.VideoStatus.PROCESSING,
+            v.processingProgress = 0,
+            v.processingAttempts = COALESCE(v.processingAttempts, 0) + 1,
+            v.processingHeartbeatAt = :now
+        WHERE v.id = :id
+        AND v.status = org.app.courseapp.model.VideoStatus.PENDING
+    """)
+    int claimForProcessing(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Записи воркера ограничены его захватом (PROCESSING + номер попытки): 0 строк — задачу
+    // вернули в очередь и забрал другой воркер, либо видео удалили, и этот воркер должен остановиться
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Video v
+        SET v.processingProgress = :progress, v.processingHeartbeatAt = :now
+        WHERE v.id = :id
+        AND v.status = org.app.courseapp.model.VideoStatus.PROCESSING
+        AND v.processingAttempts = :attempt
+    """)
+    int updateProcessingProgress(@Param("id") Long id,
+                                 @Param("attempt") Integer attempt,
+                                 @Param("progress") Integer progress,
+                                 @Param("now") LocalDateTime now);
+
+    // Пульс воркера: идёт по таймеру всю задачу, включая скачивание и ffprobe
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Video v
+        SET v.processingHeartbeatAt = :now
+        WHERE v.id = :id
+        AND v.status = org.app.courseapp.model.VideoStatus.PROCESSING
+        AND v.processingAttempts = :attempt
+    """)
+    int touchProcessingHeartbeat(@Param("id") Long id,
+                                 @Param("attempt") Integer attempt,
+                                 @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Video v
+        SET v.status = org.app.courseapp.model.VideoStatus.PENDING
+        WHERE v.status = org.app.courseapp.model.VideoStatus.PROCESSING
+        AND v.processingHeartbeatAt < :staleBefore
+        AND COALESCE(v.processingAttempts, 0) < :maxAttempts
+    """)
+    int requeueStaleJobs(@Param("staleBefore") LocalDateTime staleBefore,
+                         @Param("maxAttempts") int maxAttempts);
+
+    // Задача, убивавшая воркер maxAttempts раз, в очередь больше не возвращается
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Video v
+        SET v.status = org.app.courseapp.model.VideoStatus.FAILED,
+            v.processingError = :error
+        WHERE v.status = org.app.courseapp.model.VideoStatus.PROCESSING
+        AND v.processingHeartbeatAt < :staleBefore
+        AND COALESCE(v.processingAttempts, 0) >= :maxAttempts
+    """)
+    int failStaleJobs(@Param("staleBefore") LocalDateTime staleBefore,
+                      @Param("maxAttempts") int maxAttempts,
+                      @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Video v
+        SET v.status = org.app.courseapp.model.VideoStatus.READY,
+            v.processingProgress = 100,
+            v.processingError = null,
+            v.sourceObjectKey = null,
+            v.durationSeconds = :durationSeconds,
+            v.fileSizeBytes = :fileSizeBytes,
+            v.contentType = :contentType,
+            v.hlsPlaylistKey = :hlsPlaylistKey
+        WHERE v.id = :id
+        AND v.status = org.app.courseapp.model.VideoStatus.PROCESSING
+        AND v.processingAttempts = :attempt
+    """)
+    int markReady(@Param("id") Long id,
+                  @Param("attempt") Integer attempt,
+                  @Param("durationSeconds") Long durationSeconds,
+                  @Param("fileSizeBytes") Long fileSizeBytes,
+                  @Param("contentType") String contentType,
+                  @Param("hlsPlaylistKey") String hlsPlaylistKey);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE Video v
+        SET v.status = :status, v.processingError = :error
+        WHERE v.id = :id
+        AND v.status = org.app.courseapp.model.VideoStatus.PROCESSING
+        AND v.processingAttempts = :attempt
+    """)
+    int markProcessingFailed(@Param("id") Long id,
+                             @Param("attempt") Integer attempt,
+                             @Param("status") VideoStatus status,
+                             @Param("error") String error);
+}
@@ -0,0 +1,81 @@
+package org.app.courseapp.security;
+
+import lombok.RequiredArgsConstructor;
+import org.app.courseapp.model.VideoCategory;
+import org.app.courseapp.model.users.Parent;
+import org.app.courseapp.model.users.User;
+import org.app.courseapp.repository.UserRepository;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.BitSet;
+import java.util.Optional;
+
+/**
+ * Текущий пользователь в пределах запроса. Id берётся из principal'а, выставленного JwtRequestFilter,
+ * сущность поднимается по первичному ключу один раз и кладётся в атрибуты запроса —
+ * повторные getCurrentUser() в сервисах в БД не ходят. Вне запроса (инициализация данных,
+ * фоновые задачи) пользователь загружается на каждый вызов.
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentUserHolder {
+
+    private static final String ATTRIBUTE = CurrentUserHolder.class.getName() + ".user";
+
+    private final UserRepository userRepository;
+
+    public Optional<UserDetailsImpl> getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetailsImpl principal)) {
+            return Optional.empty();
+        }
+        return Optional.of(principal);
+    }
+
+    public Optional<Long> getCurrentUserId() {
+        return getPrincipal().map(UserDetailsImpl::getId);
+    }
+
+    /**
+     * Доступ текущего родителя к категории видео. С самодостаточным токеном решается по грантам
+     * из него без запросов к БД, иначе — по allowedVideoCategories загруженного родителя.
+     */
+    public boolean parentCanAccessCategory(VideoCategory category) {
+        Optional<UserDetailsImpl> principal = getPrincipal();
+        if (principal.isEmpty()) {
+            return false;
+        }
+        // У не-родителей карта в токене пустая
+        BitSet grants = principal.get().getCategoryGrants();
+        if (grants != null) {
+            return grants.get(category.getId().intValue());
+        }
+        return getCurrentUser().orElse(null) instanceof Parent parent
+                && parent.hasAccessToCategory(category);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Optional<User> getCurrentUser() {
+        Optional<Long> userId = getCurrentUserId();
+        if (userId.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return userRepository.findById(userId.get());
+        }
+
+        Object cached = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached instanceof Optional<?> user) {
+            return (Optional<User>) user;
+        }
+        Optional<User> user = userRepository.findById(userId.get());
+        attributes.setAttribute(ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        return user;
+    }
+}
@@ -0,0 +1,225 @@
+package org.app.courseapp.security;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш principal'ов для JwtRequestFilter: email → UserDetailsImpl с TTL, без похода в БД на каждый запрос.
+ * Смена пароля, деактивация и смена ролей вызывают {@link #invalidate}: запись сбрасывается локально,
+ * а после коммита через pg_notify — на остальных узлах (каждый держит отдельное соединение с LISTEN).
+ * Если уведомление потерялось (обрыв соединения), устаревший principal живёт не дольше TTL —
+ * это и есть верхняя граница, за которую деактивированный аккаунт перестаёт проходить.
+ * Логин (DaoAuthenticationProvider) идёт мимо кэша и всегда сверяет актуальный пароль.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PrincipalCache {
+
+    private static final String CHANNEL = "principal_invalidation";
+    private static final int MAX_ENTRIES = 10_000;
+    private static final int LISTEN_POLL_MILLIS = 5_000;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final DataSource dataSource;
+
+    @Value("${security.principal-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Растёт на каждый сброс: загрузка, начатая до сброса, в кэш не кладётся
+    private final AtomicLong invalidationSeq = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong notifications = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread listener;
+
+    private record Entry(UserDetailsImpl principal, long expiresAt) {}
+
+    public record CacheStats(
+            long hits,
+            long misses,
+            long invalidations,
+            long notifications,
+            int entries,
+            long ttlSeconds,
+            boolean listening
+    ) {}
+
+    public UserDetailsImpl get(String email) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(email);
+        if (entry != null && entry.expiresAt() > now) {
+            hits.incrementAndGet();
+            return entry.principal();
+        }
+
+        misses.incrementAndGet();
+        long seq = invalidationSeq.get();
+        UserDetailsImpl principal = (UserDetailsImpl) userDetailsService.loadUserByUsername(email);
+        if (entries.size() >= MAX_ENTRIES) {
+            trim(now);
+        }
+        if (invalidationSeq.get() == seq) {
+            entries.put(email, new Entry(principal, now + TimeUnit.SECONDS.toMillis(ttlSeconds)));
+        }
+        return principal;
+    }
+
+    /**
+     * Сбрасывает principal сразу и ещё раз после коммита — чтобы параллельный запрос
+     * не успел закэшировать состояние до изменений; после коммита уведомляет остальные узлы.
+     */
+    public void invalidate(String email) {
+        evict(email);
+        invalidations.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(email);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(email);
+                publish(email);
+            }
+        });
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), invalidations.get(), notifications.get(),
+                entries.size(), ttlSeconds, listening);
+    }
+
+    @Scheduled(fixedDelay = 300_000)
+    public void logStats() {
+        CacheStats stats = getStats();
+        long lookups = stats.hits() + stats.misses();
+        if (lookups == 0) {
+            return;
+        }
+        log.info("Principal cache: {} hits, {} misses ({}% hit ratio), {} entries, {} invalidations",
+                stats.hits(), stats.misses(), stats.hits() * 100 / lookups,
+                stats.entries(), stats.invalidations());
+    }
+
+    // ─── LISTEN/NOTIFY ────────────────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startListener() {
+        running = true;
+        listener = new Thread(this::listen, "principal-cache-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    // Отдельное соединение мимо пула: LISTEN держит его всё время жизни узла
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                // Пока соединения не было, уведомления могли потеряться
+                entries.clear();
+                listening = true;
+                log.info("Listening for principal invalidations on channel {}", CHANNEL);
+
+                while (running) {
+                    PGNotification[] received = pg.getNotifications(LISTEN_POLL_MILLIS);
+                    if (received == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : received) {
+                        evict(notification.getParameter());
+                        notifications.incrementAndGet();
+                    }
+                }
+            } catch (SQLException e) {
+                log.warn("Principal invalidation listener disconnected: {}", e.getMessage());
+            } finally {
+                listening = false;
+            }
+
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void publish(String email) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, email);
+            statement.execute();
+        } catch (SQLException e) {
+            // Остальные узлы подхватят изменение по истечении TTL
+            log.warn("Failed to publish principal invalidation for {}: {}", email, e.getMessage());
+        }
+    }
+
+    private void evict(String email) {
+        invalidationSeq.incrementAndGet();
+        entries.remove(email);
+    }
+
+    // Сначала истёкшие; если кэш всё ещё полон — произвольные записи до 90% лимита
+    private void trim(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES * 9 / 10 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
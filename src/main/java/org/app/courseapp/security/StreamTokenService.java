@@ -0,0 +1,125 @@
+package org.app.courseapp.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.config.minio.MinioBucket;
+import org.app.courseapp.model.Video;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Короткоживущие HMAC-токены для /videos/{id}/stream.
+ * Токен выдаётся вместе с VideoDto только после проверки доступа к видео и содержит всё, что нужно для отдачи байтов
+ * (ключ объекта, размер, content-type), поэтому Range-запросы плеера не ходят ни в БД, ни в statObject.
+ */
+@Slf4j
+@Component
+public class StreamTokenService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String SEPARATOR = "|";
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+
+    // Mac не потокобезопасен, а создавать его на каждый Range-запрос дорого
+    private final ThreadLocal<Mac> macs;
+
+    public StreamTokenService(
+            @Value("${stream.token.secret:${jwt.secret}}") String secret,
+            @Value("${stream.token.ttl-minutes:30}") long ttlMinutes) {
+        this.key = new SecretKeySpec(
+                ("stream:" + secret).getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.ttlSeconds = ttlMinutes * 60;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public record StreamClaims(
+            Long videoId,
+            Long userId,
+            MinioBucket bucket,
+            String objectKey,
+            Long size,
+            String contentType,
+            long expiresAt
+    ) {}
+
+    public String issue(Video video, Long userId) {
+        // У записей до очереди перекодирования fileSizeBytes — размер оригинала, ему верить нельзя
+        Long size = video.getStatus() != null ? video.getFileSizeBytes() : null;
+        String payload = String.join(SEPARATOR,
+                String.valueOf(video.getId()),
+                String.valueOf(userId),
+                video.getBucketName(),
+                video.getObjectKey(),
+                size != null ? String.valueOf(size) : "",
+                video.getContentType() != null ? video.getContentType() : "",
+                String.valueOf(Instant.now().getEpochSecond() + ttlSeconds));
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return encoder.encodeToString(payloadBytes) + "." + encoder.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * @return claims или null, если подпись не сошлась, токен истёк или выдан для другого видео
+     */
+    public StreamClaims verify(String token, Long videoId) {
+        try {
+            int dot = token.indexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] payloadBytes = decoder.decode(token.substring(0, dot));
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+                return null;
+            }
+
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 7) {
+                return null;
+            }
+            StreamClaims claims = new StreamClaims(
+                    Long.parseLong(parts[0]),
+                    Long.parseLong(parts[1]),
+                    MinioBucket.valueOf(parts[2]),
+                    parts[3],
+                    parts[4].isEmpty() ? null : Long.parseLong(parts[4]),
+                    parts[5].isEmpty() ? null : parts[5],
+                    Long.parseLong(parts[6])
+            );
+
+            if (!claims.videoId().equals(videoId) || claims.expiresAt() < Instant.now().getEpochSecond()) {
+                return null;
+            }
+            return claims;
+        } catch (IllegalArgumentException e) {
+            log.debug("Malformed stream token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        Mac mac = macs.get();
+        mac.reset();
+        return mac.doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to init stream token HMAC", e);
+        }
+    }
+}
@@ -2,13 +2,17 @@ package org.app.courseapp.security;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import org.app.courseapp.model.UserRole;
+import org.app.courseapp.model.users.Parent;
 import org.app.courseapp.model.users.User;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Getter
@@ -18,22 +22,54 @@ public class UserDetailsImpl implements UserDetails {
     private String username;
     private String password;
     private Boolean active;
+    // Имена ролей (ROLE_PARENT, ...) — проверка роли без загрузки пользователя
+    private Set<String> roles;
     private Collection<? extends GrantedAuthority> authorities;
+    // Версия доступов родителя (Parent.accessVersion), у остальных 0
+    private long accessVersion;
+    // Гранты категорий видео из самодостаточного токена; null — решать по БД
+    private BitSet categoryGrants;
 
     public static UserDetailsImpl build(User user) {
-        List<GrantedAuthority> authorities = user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority(role.getName()))
-                .collect(Collectors.toList());
+        Set<String> roles = user.getRoles().stream()
+                .map(UserRole::getName)
+                .collect(Collectors.toUnmodifiableSet());
+        long accessVersion = user instanceof Parent parent && parent.getAccessVersion() != null
+                ? parent.getAccessVersion()
+                : 0L;
 
         return new UserDetailsImpl(
                 user.getId(),
                 user.getEmail(),
                 user.getPassword(),
                 user.getActive(),
-                authorities
+                roles,
+                toAuthorities(roles),
+                accessVersion,
+                null
         );
     }
 
+    /**
+     * Principal из claims самодостаточного токена. Пароль в нём не нужен —
+     * по нему только авторизуются запросы, логин идёт через {@link #build}.
+     */
+    public static UserDetailsImpl fromToken(Long id, String username, Boolean active, Set<String> roles,
+                                            long accessVersion, BitSet categoryGrants) {
+        return new UserDetailsImpl(id, username, null, active, roles, toAuthorities(roles),
+                accessVersion, categoryGrants);
+    }
+
+    public boolean hasRole(String roleName) {
+        return roles.contains(roleName);
+    }
+
+    private static List<GrantedAuthority> toAuthorities(Set<String> roles) {
+        return roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
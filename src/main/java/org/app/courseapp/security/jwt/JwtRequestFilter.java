@@ -6,17 +6,24 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.config.WebConfig;
+import org.app.courseapp.security.PrincipalCache;
+import org.app.courseapp.security.UserDetailsImpl;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
 
 @Slf4j
 @Component
@@ -24,24 +31,32 @@ import java.io.IOException;
 public class JwtRequestFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
-    private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+
+    public static final String TOKEN_REFRESH_HEADER = "X-Token-Refresh";
+
+    private static final Pattern STREAM_PATH = Pattern.compile(".*/videos/\\d+/stream");
+    private static final List<PathPattern> PUBLIC_PATTERNS = Arrays.stream(WebConfig.PUBLIC_PATHS)
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtTokenUtil.validateJwtToken(jwt)) {
-                String tokenType = jwtTokenUtil.getTokenType(jwt);
-                if (!"ACCESS".equals(tokenType)) {
+            // Подпись проверяется один раз, тип и subject берутся из того же разбора
+            JwtTokenUtil.TokenClaims claims = jwt != null ? jwtTokenUtil.parse(jwt) : null;
+            if (claims != null) {
+                if (!claims.isAccess()) {
                     filterChain.doFilter(request, response);
                     return;
                 }
 
-                String username = jwtTokenUtil.getUsernameFromJwtToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                String username = claims.subject();
+                UserDetailsImpl cached = principalCache.get(username);
 
-                if (!userDetails.isEnabled()) {
+                if (!cached.isEnabled()) {
                     log.warn("Deactivated user attempted access: {}", username);
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                     response.setContentType(MediaType.APPLICATION_JSON_VALUE);
@@ -49,6 +64,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                     return;
                 }
 
+                UserDetailsImpl userDetails = resolvePrincipal(claims, cached, response);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -63,6 +79,40 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Самодостаточный токен с актуальной версией доступов — principal собирается из его claims,
+     * и проверки доступа к категориям идут по грантам из токена. Версия разошлась (доступы
+     * поменяли после выдачи) — гранты не используются, проверки идут по БД, а клиенту
+     * заголовком подсказывается обновить токен.
+     */
+    private UserDetailsImpl resolvePrincipal(JwtTokenUtil.TokenClaims claims, UserDetailsImpl cached,
+                                             HttpServletResponse response) {
+        if (!claims.isSelfContained()) {
+            return cached;
+        }
+        if (!claims.userId().equals(cached.getId()) || claims.accessVersion() != cached.getAccessVersion()) {
+            response.setHeader(TOKEN_REFRESH_HEADER, "true");
+            return cached;
+        }
+        return UserDetailsImpl.fromToken(claims.userId(), claims.subject(), cached.getActive(),
+                claims.roles(), claims.accessVersion(), claims.categoryGrants());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Открытые пути пользователя не используют — токен на них не разбираем
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        PathContainer container = PathContainer.parsePath(path);
+        for (PathPattern pattern : PUBLIC_PATTERNS) {
+            if (pattern.matches(container)) {
+                return true;
+            }
+        }
+        // Range-запросы с stream-токеном самодостаточны — не грузим пользователя из БД
+        return request.getParameter("token") != null
+                && STREAM_PATH.matcher(request.getRequestURI()).matches();
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
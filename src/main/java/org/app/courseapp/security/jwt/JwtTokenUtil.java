@@ -3,6 +3,10 @@ package org.app.courseapp.security.jwt;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.model.UserRole;
+import org.app.courseapp.model.VideoCategory;
+import org.app.courseapp.model.users.Parent;
+import org.app.courseapp.model.users.User;
 import org.app.courseapp.security.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -10,46 +14,116 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @Component
 public class JwtTokenUtil {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private final long jwtExpirationMs;
+    private final long refreshTokenExpirationMs;
+    // Access-токен несёт id, роли и гранты категорий — авторизация без запросов к БД
+    private final boolean selfContained;
+
+    // Ключ и парсер неизменяемы и потокобезопасны — собираются один раз, а не на каждый запрос
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+
+    public JwtTokenUtil(
+            @Value("${jwt.secret}") String jwtSecret,
+            @Value("${jwt.expiration:86400000}") long jwtExpirationMs,
+            @Value("${jwt.refresh.expiration}") long refreshTokenExpirationMs,
+            @Value("${jwt.self-contained:false}") boolean selfContained) {
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.refreshTokenExpirationMs = refreshTokenExpirationMs;
+        this.selfContained = selfContained;
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
 
-    @Value("${jwt.expiration:86400000}")
-    private long jwtExpirationMs;
+    /**
+     * Проверенные поля токена: подпись и срок проверяются один раз в {@link #parse}.
+     * userId, roles, categoryGrants и accessVersion есть только у самодостаточного токена.
+     */
+    public record TokenClaims(
+            String subject,
+            String tokenType,
+            String authType,
+            Instant expiresAt,
+            Long userId,
+            Set<String> roles,
+            BitSet categoryGrants,
+            Long accessVersion
+    ) {
+        public boolean isAccess() {
+            return "ACCESS".equals(tokenType);
+        }
 
-    @Value("${jwt.refresh.expiration}")
-    private long refreshTokenExpirationMs;
+        public boolean isRefresh() {
+            return "REFRESH".equals(tokenType);
+        }
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        public boolean isSelfContained() {
+            return userId != null && roles != null && categoryGrants != null && accessVersion != null;
+        }
     }
 
     public String generateJwtToken(Authentication authentication, String authType) {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+        return generateTokenFromUsername(userPrincipal.getUsername(), authType);
+    }
 
+    public String generateTokenFromUsername(String username, String authType) {
         return Jwts.builder()
-                .setSubject(userPrincipal.getUsername())
+                .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .claim("authType", authType)
                 .claim("tokenType", "ACCESS")
                 .compact();
     }
 
-    public String generateTokenFromUsername(String username, String authType) {
+    /**
+     * Access-токен для пользователя: при jwt.self-contained=true в нём id, роли, битовая карта
+     * разрешённых категорий видео (бит = id категории) и версия доступов; иначе — как раньше, только email.
+     */
+    public String generateAccessToken(User user, String authType) {
+        if (!selfContained) {
+            return generateTokenFromUsername(user.getEmail(), authType);
+        }
+
+        BitSet grants = new BitSet();
+        long accessVersion = 0L;
+        if (user instanceof Parent parent) {
+            for (VideoCategory category : parent.getAllowedVideoCategories()) {
+                grants.set(category.getId().intValue());
+            }
+            accessVersion = parent.getAccessVersion() != null ? parent.getAccessVersion() : 0L;
+        }
+        List<String> roles = user.getRoles().stream()
+                .map(UserRole::getName)
+                .toList();
+
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(user.getEmail())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .claim("authType", authType)
                 .claim("tokenType", "ACCESS")
+                .claim("uid", user.getId())
+                .claim("roles", roles)
+                .claim("cats", Base64.getUrlEncoder().withoutPadding().encodeToString(grants.toByteArray()))
+                .claim("av", accessVersion)
                 .compact();
     }
 
@@ -58,61 +132,47 @@ public class JwtTokenUtil {
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + refreshTokenExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .claim("tokenType", "REFRESH")
                 .compact();
     }
 
-    public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
-
-    public String getTokenType(String token) {
-        return Jwts.parser()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("tokenType", String.class);
-    }
-
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * @return поля токена или null, если подпись не сошлась, токен истёк или не разбирается
+     */
+    public TokenClaims parse(String token) {
         try {
-            Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            String cats = claims.get("cats", String.class);
+            List<?> roles = claims.get("roles", List.class);
+            return new TokenClaims(
+                    claims.getSubject(),
+                    claims.get("tokenType", String.class),
+                    claims.get("authType", String.class),
+                    claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                    claims.get("uid", Long.class),
+                    roles != null ? toRoleSet(roles) : null,
+                    cats != null ? BitSet.valueOf(Base64.getUrlDecoder().decode(cats)) : null,
+                    claims.get("av", Long.class));
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             log.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             log.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (JwtException e) {
+            log.error("JWT token is invalid: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 
-    public boolean validateRefreshToken(String token) {
-        try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            String tokenType = claims.get("tokenType", String.class);
-            return "REFRESH".equals(tokenType);
-        } catch (JwtException | IllegalArgumentException e) {
-            log.error("Invalid refresh token: {}", e.getMessage());
-            return false;
+    private static Set<String> toRoleSet(List<?> roles) {
+        Set<String> names = new HashSet<>();
+        for (Object role : roles) {
+            names.add(String.valueOf(role));
         }
+        return Set.copyOf(names);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package org.app.courseapp.service;
+
+import org.app.courseapp.model.CourseRatingSummary;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface CourseRatingSummaryService {
+    void onRatingAdded(Long courseId, int rating);
+    void onRatingChanged(Long courseId, int oldRating, int newRating);
+    void onRatingRemoved(Long courseId, int rating);
+
+    CourseRatingSummary getSummary(Long courseId);
+    Map<Long, CourseRatingSummary> getSummaries(Collection<Long> courseIds);
+    Map<Long, CourseRatingSummary> getAllSummaries();
+
+    void rebuild();
+}
@@ -0,0 +1,13 @@
+package org.app.courseapp.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface LessonCompletionService {
+    void onVideoCompleted(Long userId, Long videoId);
+    void refreshEnrollment(Long userId, Long courseId);
+
+    Map<Long, Long> getCompletedLessonCounts(Long userId, Collection<Long> courseIds);
+
+    void rebuild();
+}
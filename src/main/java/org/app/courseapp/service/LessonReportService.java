@@ -3,9 +3,9 @@ package org.app.courseapp.service;
 import org.app.courseapp.dto.response.LessonReportDto;
 import org.app.courseapp.dto.response.ParentLessonReportFullDto;
 import org.app.courseapp.dto.response.PublicLessonReportDto;
-import org.springframework.web.multipart.MultipartFile;
+import org.app.courseapp.dto.response.VideoDto;
 
-import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 public interface LessonReportService {
@@ -13,8 +13,15 @@ public interface LessonReportService {
             Long lessonId,
             Integer childReactionRating,
             String comment,
-            List<MultipartFile> videos
-    ) throws IOException;
+            List<String> uploadIds
+    );
+    VideoDto uploadHomeworkVideoStream(
+            Long lessonId,
+            String originalFilename,
+            String contentType,
+            long contentLength,
+            InputStream body
+    );
     LessonReportDto getMyReport(Long lessonId);
     List<LessonReportDto> getMyAllReports();
     List<PublicLessonReportDto> getOtherParentsReports(Long lessonId);
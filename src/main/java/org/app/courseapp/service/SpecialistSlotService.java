@@ -5,6 +5,8 @@ import org.app.courseapp.dto.request.BookSlotRequest;
 import org.app.courseapp.dto.request.SetWeeklyScheduleRequest;
 import org.app.courseapp.dto.response.*;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 public interface SpecialistSlotService {
@@ -14,12 +16,28 @@ public interface SpecialistSlotService {
 
     void deleteSlot(Long slotId, String email);
 
-    List<SpecialistSlotDto> getMySlots(String email);
+    void blockSlot(LocalDate date, LocalTime time, String email);
 
-    WeekSlotsDto getAvailableSlots(Long specialistId);
+    List<SpecialistSlotDto> getMySlots(String email, LocalDate from, LocalDate to);
+
+    WeekSlotsDto getAvailableSlots(Long specialistId, LocalDate from, LocalDate to);
 
     List<BookingHistoryDto> getMyBookings(String email);
 
+    SlotHoldDto holdSlot(BookSlotRequest request, String email);
+
+    void releaseHold(Long slotId, String email);
+
     BookingConfirmationDto bookSlot(BookSlotRequest request, String email);
 
+    List<AvailableSpecialistDto> searchAvailability(
+            Long specializationId,
+            Integer maxPrice,
+            LocalDate from,
+            LocalDate to,
+            LocalTime timeFrom,
+            LocalTime timeTo,
+            int limit
+    );
+
 }
\ No newline at end of file
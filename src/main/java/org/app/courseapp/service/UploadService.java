@@ -0,0 +1,17 @@
+package org.app.courseapp.service;
+
+import org.app.courseapp.dto.request.CreateUploadRequest;
+import org.app.courseapp.dto.response.UploadSessionDto;
+import org.app.courseapp.model.UploadSession;
+
+import java.io.InputStream;
+
+public interface UploadService {
+    UploadSessionDto createSession(CreateUploadRequest request);
+    UploadSessionDto createDirectSession(CreateUploadRequest request);
+    UploadSessionDto getSession(String uploadId);
+    UploadSessionDto uploadPart(String uploadId, int partNumber, long contentLength, InputStream body);
+    UploadSessionDto completeSession(String uploadId);
+    void abortSession(String uploadId);
+    UploadSession consumeCompletedUpload(String uploadId, Long userId);
+}
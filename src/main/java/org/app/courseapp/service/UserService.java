@@ -9,9 +9,14 @@ import org.app.courseapp.model.users.User;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Optional;
 
 public interface UserService {
     User getCurrentUser();
+    // Пустой для анонимного запроса — без исключения
+    Optional<User> getCurrentUserOptional();
+    // Id из токена, без загрузки пользователя
+    Optional<Long> getCurrentUserId();
     BaseUserProfileDto getMyProfile();
     BaseUserProfileDto getUserProfile(String email);
     BaseUserProfileDto updateMyProfile(UpdateProfileRequest request, MultipartFile photo) throws IOException;    void deactivateMyAccount();
@@ -1,19 +1,28 @@
 package org.app.courseapp.service;
 
+import org.app.courseapp.dto.request.ProgressSyncRequest;
+import org.app.courseapp.dto.response.LessonDto;
 import org.app.courseapp.dto.response.VideoDto;
-import org.springframework.web.multipart.MultipartFile;
+import org.app.courseapp.dto.response.VideoHeatmapDto;
+import org.app.courseapp.dto.response.VideoProcessingStatusDto;
 
-import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 public interface VideoService {
     boolean hasAccessToVideo(Long videoId);
     VideoDto getVideoById(Long videoId);
+    VideoProcessingStatusDto getProcessingStatus(Long videoId);
+    String getHlsPlaylist(Long videoId, String playlistName);
     List<VideoDto> getVideosByLesson(Long lessonId);
-    void updateProgress(Long videoId, Long watchedSeconds);
+    void updateProgress(Long videoId, Long watchedSeconds, Long fromSeconds);
     void markAsCompleted(Long videoId);
+    VideoHeatmapDto getHeatmap(Long videoId);
+    List<LessonDto> syncProgress(ProgressSyncRequest request);
     void deleteVideo(Long videoId);
     List<VideoDto> getLessonVideosByCategory(Long lessonId, Long categoryId);
     List<VideoDto> getMyHomeworkVideos(Long lessonId);
-    List<VideoDto> uploadLessonVideo(Long lessonId, List<MultipartFile> file, String title, Long categoryId) throws IOException;
+    List<VideoDto> uploadLessonVideo(Long lessonId, List<String> uploadIds, String title, Long categoryId);
+    VideoDto uploadLessonVideoStream(Long lessonId, String title, Long categoryId, String originalFilename,
+                                     String contentType, long contentLength, InputStream body, boolean transcode);
 }
@@ -12,6 +12,7 @@ import org.app.courseapp.model.users.Child;
 import org.app.courseapp.model.users.Parent;
 import org.app.courseapp.model.users.User;
 import org.app.courseapp.repository.*;
+import org.app.courseapp.security.PrincipalCache;
 import org.app.courseapp.security.jwt.JwtTokenUtil;
 import org.app.courseapp.service.AuthService;
 import org.app.courseapp.service.EmailService;
@@ -44,6 +45,7 @@ public class AuthServiceImpl implements AuthService {
     private final JwtTokenUtil jwtTokenUtil;
     private final EmailService emailService;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final PrincipalCache principalCache;
 
 
     @Override
@@ -129,6 +131,7 @@ public class AuthServiceImpl implements AuthService {
         return SignUpResponse.fromEntity(savedParent, answers.size(), (int) positiveAnswers, verdict);
     }
     @Override
+    @Transactional(readOnly = true)
     public JwtResponse login(LoginRequest request) {
         log.info("User attempts to login: {}", request.getEmail());
 
@@ -160,7 +163,7 @@ public class AuthServiceImpl implements AuthService {
             throw new RuntimeException("Invalid password or pin code");
         }
 
-        String token = jwtTokenUtil.generateTokenFromUsername(user.getEmail(), authType);
+        String token = jwtTokenUtil.generateAccessToken(user, authType);
         String refreshToken = jwtTokenUtil.generateRefreshToken(user.getEmail());
 
         return JwtResponse.builder()
@@ -173,24 +176,26 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public JwtResponse refreshToken(RefreshTokenRequest request) {
         String refreshToken = request.getRefreshToken();
 
         log.info("Attempting to refresh token");
 
-        if (!jwtTokenUtil.validateRefreshToken(refreshToken)) {
+        JwtTokenUtil.TokenClaims claims = jwtTokenUtil.parse(refreshToken);
+        if (claims == null || !claims.isRefresh()) {
             log.error("Invalid refresh token");
             throw new RuntimeException("Invalid refresh token");
         }
 
-        String username = jwtTokenUtil.getUsernameFromJwtToken(refreshToken);
+        String username = claims.subject();
 
         User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         String authType = user.getPincode() != null ? "PIN" : "PASSWORD";
 
-        String newAccessToken = jwtTokenUtil.generateTokenFromUsername(user.getEmail(), authType);
+        String newAccessToken = jwtTokenUtil.generateAccessToken(user, authType);
         String newRefreshToken = jwtTokenUtil.generateRefreshToken(user.getEmail());
 
         log.info("Token refreshed successfully for user: {}", username);
@@ -271,6 +276,7 @@ public class AuthServiceImpl implements AuthService {
 
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
 
         resetToken.setUsed(true);
         passwordResetTokenRepository.save(resetToken);
@@ -0,0 +1,152 @@
+package org.app.courseapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.dto.response.SpecialistSlotDto;
+import org.app.courseapp.repository.SpecialistRepository;
+import org.app.courseapp.util.SlotAvailabilityCalculator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс свободных слотов всех специалистов в памяти: на каждый день горизонта —
+ * BitSet по минутам суток, бит выставлен, если в эту минуту начинается свободный слот.
+ * Поиск «кто свободен раньше всех» / «кто свободен во вторник 10–12» — это nextSetBit
+ * по нескольким BitSet на специалиста, без запросов к БД.
+ * Источник правды — SlotAvailabilityCalculator; после изменения расписания или брони
+ * специалист пересчитывается после коммита, полный пересчёт — раз в несколько минут
+ * (подхватывает изменения с других узлов) и в полночь (сдвиг горизонта).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AvailabilityIndex {
+
+    public static final int HORIZON_DAYS = 28;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final SpecialistRepository specialistRepository;
+    private final SlotAvailabilityCalculator availabilityCalculator;
+
+    // Значения неизменяемы после публикации — читатели не берут блокировок
+    private final Map<Long, SpecialistDays> index = new ConcurrentHashMap<>();
+
+    private record SpecialistDays(LocalDate firstDay, BitSet[] days) {}
+
+    public record Match(LocalDate date, List<LocalTime> times) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 0 0 * * *")
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void rebuildAll() {
+        long started = System.nanoTime();
+        Set<Long> ids = new HashSet<>(specialistRepository.findAllIds());
+        for (Long specialistId : ids) {
+            refresh(specialistId);
+        }
+        index.keySet().retainAll(ids);
+        log.debug("Availability index rebuilt for {} specialists in {} ms",
+                ids.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public void refresh(Long specialistId) {
+        try {
+            index.put(specialistId, build(specialistId));
+        } catch (Exception e) {
+            log.warn("Failed to refresh availability index for specialist {}: {}", specialistId, e.getMessage());
+        }
+    }
+
+    // Пересчёт только после коммита: иначе индекс увидит состояние до изменений
+    public void refreshAfterCommit(Long specialistId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(specialistId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh(specialistId);
+            }
+        });
+    }
+
+    /**
+     * Первый день в [from, to], где у специалиста есть свободные слоты с началом в [timeFrom, timeTo),
+     * и все такие слоты этого дня. Слоты в прошлом (раньше notBefore) не учитываются.
+     */
+    public Match findEarliest(Long specialistId, LocalDate from, LocalDate to,
+                              LocalTime timeFrom, LocalTime timeTo, LocalDateTime notBefore) {
+        SpecialistDays specialistDays = index.get(specialistId);
+        if (specialistDays == null) {
+            return null;
+        }
+
+        int fromMinute = timeFrom != null ? minuteOf(timeFrom) : 0;
+        int toMinute = timeTo != null ? minuteOf(timeTo) : MINUTES_PER_DAY;
+
+        LocalDate first = specialistDays.firstDay();
+        LocalDate start = from.isBefore(first) ? first : from;
+        long startOffset = ChronoUnit.DAYS.between(first, start);
+        long endOffset = Math.min(ChronoUnit.DAYS.between(first, to), specialistDays.days().length - 1L);
+
+        for (long offset = startOffset; offset <= endOffset; offset++) {
+            LocalDate date = first.plusDays(offset);
+            int lo = fromMinute;
+            if (date.equals(notBefore.toLocalDate())) {
+                lo = Math.max(lo, minuteOf(notBefore.toLocalTime()) + 1);
+            } else if (date.isBefore(notBefore.toLocalDate())) {
+                continue;
+            }
+
+            BitSet bits = specialistDays.days()[(int) offset];
+            int bit = bits.nextSetBit(lo);
+            if (bit < 0 || bit >= toMinute) {
+                continue;
+            }
+
+            List<LocalTime> times = new ArrayList<>();
+            for (; bit >= 0 && bit < toMinute; bit = bits.nextSetBit(bit + 1)) {
+                times.add(LocalTime.MIN.plusMinutes(bit));
+            }
+            return new Match(date, times);
+        }
+        return null;
+    }
+
+    private SpecialistDays build(Long specialistId) {
+        LocalDate today = LocalDate.now();
+        BitSet[] days = new BitSet[HORIZON_DAYS];
+        for (int i = 0; i < HORIZON_DAYS; i++) {
+            days[i] = new BitSet(MINUTES_PER_DAY);
+        }
+
+        List<SpecialistSlotDto> slots = availabilityCalculator
+                .compute(specialistId, today, today.plusDays(HORIZON_DAYS - 1), false);
+        for (SpecialistSlotDto slot : slots) {
+            int offset = (int) ChronoUnit.DAYS.between(today, slot.getDate());
+            days[offset].set(minuteOf(slot.getTime()));
+        }
+        return new SpecialistDays(today, days);
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
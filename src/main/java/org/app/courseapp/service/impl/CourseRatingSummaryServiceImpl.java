@@ -0,0 +1,101 @@
+package org.app.courseapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.model.CourseRatingSummary;
+import org.app.courseapp.repository.CourseRatingSummaryRepository;
+import org.app.courseapp.service.CourseRatingSummaryService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CourseRatingSummaryServiceImpl implements CourseRatingSummaryService {
+
+    private final CourseRatingSummaryRepository summaryRepository;
+
+    // Дельты пишутся в транзакции вызывающего (rateCourse, reviewCourse и т.д.) — откатываются вместе с отзывом
+
+    @Override
+    public void onRatingAdded(Long courseId, int rating) {
+        applyDelta(courseId, 1, rating, histogramDelta(rating, 1));
+    }
+
+    @Override
+    public void onRatingChanged(Long courseId, int oldRating, int newRating) {
+        if (oldRating == newRating) {
+            return;
+        }
+        long[] histogram = histogramDelta(oldRating, -1);
+        histogram[newRating - 1] += 1;
+        applyDelta(courseId, 0, newRating - oldRating, histogram);
+    }
+
+    @Override
+    public void onRatingRemoved(Long courseId, int rating) {
+        applyDelta(courseId, -1, -rating, histogramDelta(rating, -1));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CourseRatingSummary getSummary(Long courseId) {
+        return summaryRepository.findById(courseId)
+                .orElseGet(() -> empty(courseId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, CourseRatingSummary> getSummaries(Collection<Long> courseIds) {
+        return summaryRepository.findAllById(courseIds).stream()
+                .collect(Collectors.toMap(CourseRatingSummary::getCourseId, Function.identity()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, CourseRatingSummary> getAllSummaries() {
+        return summaryRepository.findAll().stream()
+                .collect(Collectors.toMap(CourseRatingSummary::getCourseId, Function.identity()));
+    }
+
+    /**
+     * Пересчёт из course_reviews: заполняет таблицу при первом запуске
+     * и раз в сутки чинит расхождения (ручные правки в БД, каскадные удаления отзывов).
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 30 4 * * *")
+    public void rebuild() {
+        int rebuilt = summaryRepository.rebuildAll();
+        int orphans = summaryRepository.deleteOrphans();
+        log.info("Rebuilt rating summary for {} courses, removed {} orphan rows", rebuilt, orphans);
+    }
+
+    private void applyDelta(Long courseId, long countDelta, long sumDelta, long[] histogram) {
+        summaryRepository.applyDelta(courseId, countDelta, sumDelta,
+                histogram[0], histogram[1], histogram[2], histogram[3], histogram[4]);
+    }
+
+    private long[] histogramDelta(int rating, long delta) {
+        if (rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        long[] histogram = new long[5];
+        histogram[rating - 1] = delta;
+        return histogram;
+    }
+
+    private CourseRatingSummary empty(Long courseId) {
+        CourseRatingSummary summary = new CourseRatingSummary();
+        summary.setCourseId(courseId);
+        return summary;
+    }
+}
@@ -13,7 +13,9 @@ import org.app.courseapp.repository.CourseEnrollmentRepository;
 import org.app.courseapp.repository.CourseRepository;
 import org.app.courseapp.repository.LessonRepository;
 import org.app.courseapp.service.CourseService;
+import org.app.courseapp.service.LessonCompletionService;
 import org.app.courseapp.service.UserService;
+import org.app.courseapp.util.CourseCatalogAssembler;
 import org.app.courseapp.util.Mapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +23,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -31,30 +35,26 @@ public class CourseServiceImpl implements CourseService {
     private final UserService userService;
     private final CourseEnrollmentRepository enrollmentRepository;
     private final Mapper mapper;
+    private final CourseCatalogAssembler catalogAssembler;
+    private final LessonCompletionService lessonCompletionService;
 
     @Override
     @Transactional(readOnly = true)
     public List<CourseDto> getAllCourses() {
-        User currentUser = null;
-        try {
-            currentUser = userService.getCurrentUser();
-        } catch (Exception e) {
-        }
-
-        Long userId = currentUser != null ? currentUser.getId() : null;
-        return courseRepository.findAll().stream()
-                .map(course -> mapper.convertCourseToDto(course, userId))
-                .toList();
+        Long userId = userService.getCurrentUserId().orElse(null);
+        // Порядок каталога прежний (findAll); авторы подгружаются лениво — их единицы, кэш сессии их переиспользует
+        return catalogAssembler.assemble(courseRepository.findAll(), userId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<CourseDto> getMyEnrolledCourses() {
         User currentUser = userService.getCurrentUser();
-        List<CourseEnrollment> enrollments = enrollmentRepository.findByUserId(currentUser.getId());
-        return enrollments.stream()
-                .map(enrollment -> mapper.convertCourseToDto(enrollment.getCourse(), currentUser.getId()))
+        List<CourseEnrollment> enrollments = enrollmentRepository.findByUserIdWithCourse(currentUser.getId());
+        List<Course> courses = enrollments.stream()
+                .map(CourseEnrollment::getCourse)
                 .toList();
+        return catalogAssembler.assemble(courses, currentUser.getId(), enrollments);
     }
     @Override
     @Transactional(readOnly = true)
@@ -65,21 +65,21 @@ public class CourseServiceImpl implements CourseService {
             return List.of();
         }
 
-        List<CourseEnrollment> userEnrollments = enrollmentRepository.findByUserId(currentUser.getId());
+        List<CourseEnrollment> userEnrollments = enrollmentRepository.findByUserIdWithCourse(currentUser.getId());
 
-        List<Long> enrolledCourseIds = userEnrollments.stream()
+        Set<Long> enrolledCourseIds = userEnrollments.stream()
                 .map(e -> e.getCourse().getId())
-                .toList();
+                .collect(Collectors.toSet());
 
-        List<Course> allCourses = courseRepository.findAllByOrderByCourseOrderAsc();
+        List<Course> allCourses = courseRepository.findAllWithCreatorOrderByCourseOrder();
 
         Integer nextAvailableOrder = determineNextAvailableOrder(userEnrollments, allCourses);
 
-        return allCourses.stream()
+        List<Course> upcoming = allCourses.stream()
                 .filter(course -> !enrolledCourseIds.contains(course.getId()))
                 .filter(course -> course.getCourseOrder() >= nextAvailableOrder)
-                .map(course -> mapper.convertCourseToDto(course, currentUser.getId()))
                 .toList();
+        return catalogAssembler.assemble(upcoming, currentUser.getId(), userEnrollments);
     }
 
     private Integer determineNextAvailableOrder(List<CourseEnrollment> enrollments, List<Course> allCourses) {
@@ -108,13 +108,7 @@ public class CourseServiceImpl implements CourseService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
 
-        User currentUser = null;
-        try {
-            currentUser = userService.getCurrentUser();
-        } catch (Exception e) {
-        }
-
-        Long userId = currentUser != null ? currentUser.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
         return mapper.convertCourseToDto(course, userId);
     }
 
@@ -210,6 +204,8 @@ public class CourseServiceImpl implements CourseService {
         enrollment.setUser(currentUser);
         enrollment.setCourse(course);
         enrollmentRepository.save(enrollment);
+        // Текущий урок и уроки, пройденные до записи (повторная запись после отписки)
+        lessonCompletionService.refreshEnrollment(currentUser.getId(), courseId);
 
         log.info("User {} enrolled in course {}", currentUser.getEmail(), course.getTitle());
     }
@@ -238,18 +234,24 @@ public class CourseServiceImpl implements CourseService {
     @Transactional(readOnly = true)
     public List<CourseDto> getMyActiveCourses() {
         User currentUser = userService.getCurrentUser();
-        return enrollmentRepository.findByUserIdAndCompleted(currentUser.getId(), false).stream()
-                .map(e -> mapper.convertCourseToDto(e.getCourse(), currentUser.getId()))
-                .toList();
+        return getMyCoursesByCompletion(currentUser.getId(), false);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<CourseDto> getMyCompletedCourses() {
         User currentUser = userService.getCurrentUser();
-        return enrollmentRepository.findByUserIdAndCompleted(currentUser.getId(), true).stream()
-                .map(e -> mapper.convertCourseToDto(e.getCourse(), currentUser.getId()))
+        return getMyCoursesByCompletion(currentUser.getId(), true);
+    }
+
+    // Все записи пользователя всё равно нужны для доступности курсов, фильтруем их в памяти
+    private List<CourseDto> getMyCoursesByCompletion(Long userId, boolean completed) {
+        List<CourseEnrollment> enrollments = enrollmentRepository.findByUserIdWithCourse(userId);
+        List<Course> courses = enrollments.stream()
+                .filter(e -> Boolean.TRUE.equals(e.getCompleted()) == completed)
+                .map(CourseEnrollment::getCourse)
                 .toList();
+        return catalogAssembler.assemble(courses, userId, enrollments);
     }
 
     @Override
@@ -0,0 +1,74 @@
+package org.app.courseapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.repository.UserLessonCompletionRepository;
+import org.app.courseapp.repository.VideoRepository;
+import org.app.courseapp.service.LessonCompletionService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LessonCompletionServiceImpl implements LessonCompletionService {
+
+    private final UserLessonCompletionRepository completionRepository;
+    private final VideoRepository videoRepository;
+
+    /**
+     * Видео перешло в completed: если это закрыло урок — отметка урока, пересчёт
+     * прогресса и текущего урока записи на курс. Остальные видео пересчёта не вызывают.
+     */
+    @Override
+    @Transactional
+    public void onVideoCompleted(Long userId, Long videoId) {
+        VideoRepository.LessonRef lesson = videoRepository.findLessonRefByVideoId(videoId).orElse(null);
+        if (lesson == null) {
+            return;
+        }
+        if (completionRepository.insertIfCompleted(userId, lesson.getLessonId()) == 0) {
+            return;
+        }
+        refreshEnrollment(userId, lesson.getCourseId());
+    }
+
+    @Override
+    @Transactional
+    public void refreshEnrollment(Long userId, Long courseId) {
+        completionRepository.refreshEnrollment(userId, courseId);
+        if (completionRepository.completeEnrollmentIfDone(userId, courseId) > 0) {
+            log.info("User {} completed course {}", userId, courseId);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Long> getCompletedLessonCounts(Long userId, Collection<Long> courseIds) {
+        return completionRepository.countByCourse(userId, courseIds).stream()
+                .collect(Collectors.toMap(UserLessonCompletionRepository.CourseLessonCount::getCourseId,
+                        UserLessonCompletionRepository.CourseLessonCount::getLessonCount));
+    }
+
+    /**
+     * Пересчёт из video_progress: заполняет таблицу при первом запуске и раз в сутки
+     * чинит расхождения (новые видео в пройденных уроках, удалённые уроки, ручные правки).
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 45 4 * * *")
+    public void rebuild() {
+        int stale = completionRepository.deleteStale();
+        int added = completionRepository.insertMissing();
+        int enrollments = completionRepository.refreshAllEnrollments();
+        log.info("Rebuilt lesson completion: {} added, {} stale removed, {} enrollments refreshed",
+                added, stale, enrollments);
+    }
+}
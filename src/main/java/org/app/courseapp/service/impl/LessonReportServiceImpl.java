@@ -10,22 +10,25 @@ import org.app.courseapp.dto.response.PublicLessonReportDto;
 import org.app.courseapp.dto.response.VideoDto;
 import org.app.courseapp.model.Lesson;
 import org.app.courseapp.model.LessonReport;
+import org.app.courseapp.model.UploadSession;
 import org.app.courseapp.model.Video;
+import org.app.courseapp.model.VideoStatus;
 import org.app.courseapp.model.VideoType;
 import org.app.courseapp.model.users.Parent;
 import org.app.courseapp.model.users.User;
+import org.app.courseapp.repository.CourseEnrollmentRepository;
 import org.app.courseapp.repository.LessonReportRepository;
 import org.app.courseapp.repository.LessonRepository;
 import org.app.courseapp.repository.UserRepository;
 import org.app.courseapp.repository.VideoRepository;
 import org.app.courseapp.service.LessonReportService;
+import org.app.courseapp.service.UploadService;
 import org.app.courseapp.service.UserService;
 import org.app.courseapp.util.Mapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Service
@@ -36,10 +39,12 @@ public class LessonReportServiceImpl implements LessonReportService {
     private final UserRepository userRepository;
     private final LessonReportRepository reportRepository;
     private final LessonRepository lessonRepository;
+    private final CourseEnrollmentRepository enrollmentRepository;
     private final UserService userService;
     private final MinioService minioService;
     private final MinioProperties minioProperties;
     private final VideoRepository videoRepository;
+    private final UploadService uploadService;
     private final Mapper mapper;
 
     @Override
@@ -48,8 +53,8 @@ public class LessonReportServiceImpl implements LessonReportService {
             Long lessonId,
             Integer childReactionRating,
             String comment,
-            List<MultipartFile> videos
-    ) throws IOException {
+            List<String> uploadIds
+    ) {
         User currentUser = userService.getCurrentUser();
 
         Lesson lesson = lessonRepository.findById(lessonId)
@@ -66,27 +71,30 @@ public class LessonReportServiceImpl implements LessonReportService {
         report.setComment(comment);
         reportRepository.save(report);
 
-        if (videos != null && !videos.isEmpty()) {
-            for (MultipartFile file : videos) {
+        if (uploadIds != null && !uploadIds.isEmpty()) {
+            for (String uploadId : uploadIds) {
+                UploadSession upload = uploadService.consumeCompletedUpload(uploadId, currentUser.getId());
+
                 String objectKey = minioService.generateHomeworkKey(
                         lesson.getCourse().getId(),
                         lesson.getId(),
                         currentUser.getId(),
-                        file.getOriginalFilename()
+                        upload.getOriginalFilename()
                 );
 
-                minioService.uploadVideo(MinioBucket.VIDEO, objectKey, file.getInputStream());
-
                 Video video = Video.builder()
                         .title("Домашнее задание - День " + lesson.getDayNumber())
                         .type(VideoType.HOMEWORK)
                         .category(null)
                         .objectKey(objectKey)
+                        .sourceObjectKey(upload.getObjectKey())
+                        .status(VideoStatus.PENDING)
                         .bucketName(MinioBucket.VIDEO.name())
-                        .fileSizeBytes(file.getSize())
-                        .contentType(file.getContentType())
+                        .fileSizeBytes(upload.getTotalSize())
+                        .contentType(upload.getContentType())
                         .lesson(lesson)
                         .uploadedBy(currentUser)
+                        .report(report)
                         .build();
 
                 videoRepository.save(video);
@@ -95,11 +103,65 @@ public class LessonReportServiceImpl implements LessonReportService {
 
         log.info("Parent {} submitted report for lesson {} with {} videos",
                 currentUser.getEmail(), lessonId,
-                videos != null ? videos.size() : 0);
+                uploadIds != null ? uploadIds.size() : 0);
 
         return mapper.convertToLessonReportDto(report);
     }
 
+    /**
+     * Домашнее видео одним телом запроса — байты сразу уходят в MinIO, без спулинга на диск.
+     * Без @Transactional, чтобы не держать соединение с БД на время загрузки.
+     */
+    @Override
+    public VideoDto uploadHomeworkVideoStream(
+            Long lessonId,
+            String originalFilename,
+            String contentType,
+            long contentLength,
+            InputStream body
+    ) {
+        User currentUser = userService.getCurrentUser();
+
+        Lesson lesson = lessonRepository.findById(lessonId)
+                .orElseThrow(() -> new RuntimeException("Lesson not found"));
+        // Проверки до приёма байтов: чужой курс или видео без отчёта не должны занимать хранилище
+        if (!enrollmentRepository.existsByUserIdAndCourseId(currentUser.getId(), lesson.getCourse().getId())) {
+            throw new RuntimeException("Access denied: You are not enrolled in this course");
+        }
+        LessonReport report = reportRepository
+                .findByLessonIdAndParentId(lessonId, currentUser.getId())
+                .orElseThrow(() -> new RuntimeException("Submit the lesson report before attaching videos"));
+
+        String objectKey = minioService.generateHomeworkKey(
+                lesson.getCourse().getId(),
+                lesson.getId(),
+                currentUser.getId(),
+                originalFilename
+        );
+        String sourceKey = minioService.generateSourceKey(objectKey);
+        minioService.uploadFile(MinioBucket.VIDEO, sourceKey, body, contentType, contentLength);
+
+        Video video = Video.builder()
+                .title("Домашнее задание - День " + lesson.getDayNumber())
+                .type(VideoType.HOMEWORK)
+                .category(null)
+                .objectKey(objectKey)
+                .sourceObjectKey(sourceKey)
+                .status(VideoStatus.PENDING)
+                .bucketName(MinioBucket.VIDEO.name())
+                .fileSizeBytes(contentLength >= 0 ? contentLength : null)
+                .contentType(contentType)
+                .lesson(lesson)
+                .uploadedBy(currentUser)
+                .report(report)
+                .build();
+
+        videoRepository.save(video);
+        log.info("Parent {} streamed homework video for lesson {}", currentUser.getEmail(), lessonId);
+
+        return mapper.convertVideoToDto(video, currentUser.getId(), true);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public LessonReportDto getMyReport(Long lessonId) {
@@ -132,8 +194,9 @@ public class LessonReportServiceImpl implements LessonReportService {
     @Override
     @Transactional(readOnly = true)
     public List<ParentLessonReportFullDto> getFullReportsByLesson(Long lessonId) {
+        Long viewerId = userService.getCurrentUser().getId();
         return reportRepository.findByLessonId(lessonId).stream()
-                .map(report -> mapper.buildFullDto(report, lessonId))
+                .map(report -> mapper.buildFullDto(report, lessonId, viewerId))
                 .toList();
     }
 
@@ -144,7 +207,7 @@ public class LessonReportServiceImpl implements LessonReportService {
                 .findByLessonIdAndParentId(lessonId, parentId)
                 .orElseThrow(() -> new RuntimeException("Report not found"));
 
-        return mapper.buildFullDto(report, lessonId);
+        return mapper.buildFullDto(report, lessonId, userService.getCurrentUser().getId());
     }
 
 
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -29,9 +30,7 @@ public class LessonServiceImpl implements LessonService {
     public List<LessonDto> getLessonsByCourse(Long courseId) {
         User currentUser = userService.getCurrentUser();
         List<Lesson> lessons = lessonRepository.findByCourseIdOrderByDayNumber(courseId);
-        return lessons.stream()
-                .map(lesson -> mapper.convertLessonToDto(lesson, currentUser.getId()))
-                .toList();
+        return mapper.convertLessonsToDto(lessons, currentUser.getId());
     }
 
     @Override
@@ -49,20 +48,16 @@ public class LessonServiceImpl implements LessonService {
         User currentUser = userService.getCurrentUser();
 
         CourseEnrollment activeEnrollment = courseEnrollmentRepository
-                .findByUserId(currentUser.getId())
-                .stream()
+                .findByUserIdAndCourseId(currentUser.getId(), courseId)
                 .filter(e -> !Boolean.TRUE.equals(e.getCompleted()))
-                .filter(e -> e.getCourse().getId().equals(courseId))
-                .findFirst().orElseThrow(() -> new RuntimeException("No active enrollment found for this course"));
+                .orElseThrow(() -> new RuntimeException("No active enrollment found for this course"));
 
-        Lesson currentLesson = lessonRepository
-                .findFirstIncompleteLessonByCourseAndUser(courseId, currentUser.getId())
-                .orElse(
-                        lessonRepository.findByCourseIdOrderByDayNumber(courseId)
-                                .stream()
-                                .reduce((first, second) -> second)
-                                .orElseThrow(() -> new RuntimeException("No lessons found"))
-                );
+        // Указатель поддерживается при закрытии уроков; пустой или устаревший — последний урок, как и раньше
+        Lesson currentLesson = Optional.ofNullable(activeEnrollment.getCurrentLessonId())
+                .flatMap(lessonRepository::findById)
+                .filter(lesson -> lesson.getCourse().getId().equals(courseId))
+                .or(() -> lessonRepository.findFirstByCourseIdOrderByDayNumberDesc(courseId))
+                .orElseThrow(() -> new RuntimeException("No lessons found"));
 
         return mapper.convertLessonToDto(currentLesson, currentUser.getId());
     }
@@ -2,22 +2,34 @@ package org.app.courseapp.service.impl;
 
 import io.minio.*;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
 import lombok.extern.slf4j.Slf4j;
 import org.app.courseapp.config.minio.MinioBucket;
 import org.app.courseapp.config.minio.MinioProperties;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.text.Normalizer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -26,14 +38,42 @@ public class MinioService {
     private final MinioClient minioClient;
     private final MinioClient publicMinioClient;
     private final MinioProperties minioProperties;
+    private final Clock clock;
 
+    private static final long STREAM_UPLOAD_PART_SIZE = 10L * 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int STREAM_BUFFER_POOL_SIZE = 64;
+    private final BlockingQueue<byte[]> streamBuffers = new ArrayBlockingQueue<>(STREAM_BUFFER_POOL_SIZE);
+
+    // Подписанные GET-ссылки по (bucket, objectKey, срок): списки видео и аватарок
+    // запрашивают одни и те же объекты, подпись каждый раз заново — лишний HMAC на каждый элемент
+    private final Map<String, PresignedUrl> presignedUrls;
+
+    private record PresignedUrl(String url, long reuseUntilMillis) {}
+
+    @Autowired
     public MinioService(
             MinioClient minioClient,
             @Qualifier("publicMinioClient") MinioClient publicMinioClient,
             MinioProperties minioProperties) {
+        this(minioClient, publicMinioClient, minioProperties, Clock.systemUTC());
+    }
+
+    // Часы подменяются в тестах, чтобы проверить окно переиспользования ссылок
+    MinioService(MinioClient minioClient, MinioClient publicMinioClient,
+                 MinioProperties minioProperties, Clock clock) {
         this.minioClient = minioClient;
         this.publicMinioClient = publicMinioClient;
         this.minioProperties = minioProperties;
+        this.clock = clock;
+
+        int maxEntries = minioProperties.getPresignedCacheSize();
+        this.presignedUrls = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PresignedUrl> eldest) {
+                return size() > maxEntries;
+            }
+        };
     }
 
     @PostConstruct
@@ -60,7 +100,30 @@ public class MinioService {
 
     // ─── Core operations ──────────────────────────────────────────────────────
 
+    /**
+     * Ссылка из кэша переиспользуется только первую половину своего срока,
+     * так что клиент всегда получает URL, живущий ещё минимум expiryHours / 2.
+     */
     public String getPresignedUrl(MinioBucket bucket, String objectKey, int expiryHours) {
+        String cacheKey = bucket.name() + "/" + expiryHours + "/" + objectKey;
+        long now = clock.millis();
+
+        synchronized (presignedUrls) {
+            PresignedUrl cached = presignedUrls.get(cacheKey);
+            if (cached != null && cached.reuseUntilMillis() > now) {
+                return cached.url();
+            }
+        }
+
+        String url = signGetUrl(bucket, objectKey, expiryHours);
+        long reuseUntil = now + TimeUnit.HOURS.toMillis(expiryHours) / 2;
+        synchronized (presignedUrls) {
+            presignedUrls.put(cacheKey, new PresignedUrl(url, reuseUntil));
+        }
+        return url;
+    }
+
+    private String signGetUrl(MinioBucket bucket, String objectKey, int expiryHours) {
         try {
             return publicMinioClient.getPresignedObjectUrl(
                     GetPresignedObjectUrlArgs.builder()
@@ -76,6 +139,23 @@ public class MinioService {
         }
     }
 
+    // Клиент грузит напрямую в хранилище, минуя приложение
+    public String getPresignedUploadUrl(MinioBucket bucket, String objectKey, int expiryMinutes) {
+        try {
+            return publicMinioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.PUT)
+                            .bucket(resolveBucket(bucket))
+                            .object(objectKey)
+                            .expiry(expiryMinutes, TimeUnit.MINUTES)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Failed to generate upload URL for: {}", objectKey, e);
+            throw new RuntimeException("Failed to generate upload URL", e);
+        }
+    }
+
     public void uploadFile(MinioBucket bucket, String objectKey, InputStream inputStream,
                            String contentType, long size) {
         String safeKey = sanitizeObjectKey(objectKey);
@@ -84,7 +164,8 @@ public class MinioService {
                     PutObjectArgs.builder()
                             .bucket(resolveBucket(bucket))
                             .object(safeKey)
-                            .stream(inputStream, size, -1)
+                            // Размер неизвестен (chunked-тело) — MinIO режет поток на части сам
+                            .stream(inputStream, size, size >= 0 ? -1 : STREAM_UPLOAD_PART_SIZE)
                             .contentType(contentType)
                             .build()
             );
@@ -94,78 +175,37 @@ public class MinioService {
             throw new RuntimeException("Failed to upload file", e);
         }
     }
-    public void uploadVideo(MinioBucket bucket, String objectKey, InputStream inputStream) {
-        Path tempInput = null;
-        Path compressed = null;
-
+    public void uploadFromFile(MinioBucket bucket, String objectKey, Path file, String contentType) {
+        String safeKey = sanitizeObjectKey(objectKey);
         try {
-            tempInput = Files.createTempFile("upload_", ".mp4");
-            Files.copy(inputStream, tempInput, StandardCopyOption.REPLACE_EXISTING);
-
-            compressed = compressVideo(tempInput);
-
-            String safeKey = sanitizeObjectKey(objectKey);
             minioClient.uploadObject(
                     UploadObjectArgs.builder()
                             .bucket(resolveBucket(bucket))
                             .object(safeKey)
-                            .filename(compressed.toString())
-                            .contentType("video/mp4")
+                            .filename(file.toString())
+                            .contentType(contentType)
                             .build()
             );
-            log.info("Uploaded compressed video: {}", safeKey);
-
+            log.info("Uploaded file from disk: {}", safeKey);
         } catch (Exception e) {
-            log.error("Failed to upload video: {}", objectKey, e);
-            throw new RuntimeException("Failed to upload video", e);
-        } finally {
-            deleteTempFile(tempInput);
-            deleteTempFile(compressed);
+            log.error("Failed to upload file: {}", objectKey, e);
+            throw new RuntimeException("Failed to upload file", e);
         }
     }
-    private Path compressVideo(Path inputPath) throws IOException, InterruptedException {
-        Path outputPath = Files.createTempFile("compressed_", ".mp4");
-
-        ProcessBuilder pb = new ProcessBuilder(
-                "ffmpeg",
-                "-i", inputPath.toString(),
-                "-vcodec", "libx264",
-                "-crf", "23",
-                "-preset", "slow",
-                "-acodec", "aac",
-                "-b:a", "128k",
-                "-movflags", "+faststart",
-                "-y",
-                outputPath.toString()
-        );
-        pb.redirectErrorStream(true);
 
-        Process process = pb.start();
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()))) {
-            reader.lines().forEach(line -> log.debug("FFmpeg: {}", line));
-        }
-
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            Files.deleteIfExists(outputPath);
-            throw new RuntimeException("FFmpeg failed with exit code: " + exitCode);
+    public void downloadToFile(MinioBucket bucket, String objectKey, Path target) {
+        try (InputStream in = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(resolveBucket(bucket))
+                        .object(objectKey)
+                        .build())) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            log.error("Failed to download file: {}", objectKey, e);
+            throw new RuntimeException("Failed to download file", e);
         }
-
-        log.info("Video compressed: {} MB → {} MB",
-                Files.size(inputPath) / 1_048_576,
-                Files.size(outputPath) / 1_048_576);
-
-        return outputPath;
     }
 
-    private void deleteTempFile(Path path) {
-        try {
-            if (path != null) Files.deleteIfExists(path);
-        } catch (IOException e) {
-            log.warn("Failed to delete temp file: {}", path, e);
-        }
-    }
     public void deleteFile(MinioBucket bucket, String objectKey) {
         try {
             minioClient.removeObject(
@@ -181,6 +221,138 @@ public class MinioService {
         }
     }
 
+    public long getObjectSize(MinioBucket bucket, String objectKey) {
+        return statObject(bucket, objectKey).size();
+    }
+
+    public StatObjectResponse statObject(MinioBucket bucket, String objectKey) {
+        try {
+            return minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(resolveBucket(bucket))
+                            .object(objectKey)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Failed to stat file: {}", objectKey, e);
+            throw new RuntimeException("File not found", e);
+        }
+    }
+
+    /**
+     * Копирует диапазон объекта в out через буфер фиксированного размера из пула —
+     * память на один поток не зависит от размера диапазона.
+     */
+    public void copyRange(MinioBucket bucket, String objectKey, long offset, long length,
+                          OutputStream out) throws IOException {
+        byte[] buffer = acquireStreamBuffer();
+        try (InputStream in = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(resolveBucket(bucket))
+                        .object(objectKey)
+                        .offset(offset)
+                        .length(length)
+                        .build())) {
+            long remaining = length;
+            int read;
+            while (remaining > 0
+                    && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Клиент закрыл соединение (перемотка, закрытая вкладка) — обычное дело для видео
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to stream file: {}", objectKey, e);
+            throw new IOException("Failed to stream file", e);
+        } finally {
+            releaseStreamBuffer(buffer);
+        }
+    }
+
+    private byte[] acquireStreamBuffer() {
+        byte[] buffer = streamBuffers.poll();
+        return buffer != null ? buffer : new byte[STREAM_BUFFER_SIZE];
+    }
+
+    private void releaseStreamBuffer(byte[] buffer) {
+        streamBuffers.offer(buffer);
+    }
+
+    public String readAsString(MinioBucket bucket, String objectKey) {
+        try (InputStream in = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(resolveBucket(bucket))
+                        .object(objectKey)
+                        .build())) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("Failed to read file: {}", objectKey, e);
+            throw new RuntimeException("Failed to read file", e);
+        }
+    }
+
+    public Map<String, Long> listObjectSizes(MinioBucket bucket, String prefix) {
+        Map<String, Long> sizes = new TreeMap<>();
+        try {
+            for (Result<Item> item : minioClient.listObjects(
+                    ListObjectsArgs.builder().bucket(resolveBucket(bucket)).prefix(prefix).recursive(true).build())) {
+                sizes.put(item.get().objectName(), item.get().size());
+            }
+            return sizes;
+        } catch (Exception e) {
+            log.error("Failed to list objects under: {}", prefix, e);
+            throw new RuntimeException("Failed to list files", e);
+        }
+    }
+
+    /**
+     * Серверная склейка (S3 UploadPartCopy) — байты не проходят через приложение.
+     * Все части, кроме последней, должны быть не меньше 5 МБ.
+     */
+    public void composeObject(MinioBucket bucket, String targetKey, List<String> sourceKeys, String contentType) {
+        String bucketName = resolveBucket(bucket);
+        try {
+            List<ComposeSource> sources = sourceKeys.stream()
+                    .map(key -> ComposeSource.builder().bucket(bucketName).object(key).build())
+                    .toList();
+            minioClient.composeObject(
+                    ComposeObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(targetKey)
+                            .sources(sources)
+                            .headers(contentType != null ? Map.of("Content-Type", contentType) : Map.of())
+                            .build()
+            );
+            log.info("Composed {} parts into: {}", sourceKeys.size(), targetKey);
+        } catch (Exception e) {
+            log.error("Failed to compose object: {}", targetKey, e);
+            throw new RuntimeException("Failed to complete upload", e);
+        }
+    }
+
+    public void deleteFolder(MinioBucket bucket, String prefix) {
+        String bucketName = resolveBucket(bucket);
+        try {
+            List<DeleteObject> objects = new ArrayList<>();
+            for (Result<Item> item : minioClient.listObjects(
+                    ListObjectsArgs.builder().bucket(bucketName).prefix(prefix).recursive(true).build())) {
+                objects.add(new DeleteObject(item.get().objectName()));
+            }
+            // removeObjects ленивый — ошибки приходят только при итерации
+            for (Result<DeleteError> error : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build())) {
+                log.warn("Failed to delete {}: {}", error.get().objectName(), error.get().message());
+            }
+            log.info("Deleted {} objects under: {}", objects.size(), prefix);
+        } catch (Exception e) {
+            log.error("Failed to delete folder: {}", prefix, e);
+            throw new RuntimeException("Failed to delete folder", e);
+        }
+    }
+
     // ─── Key generators ───────────────────────────────────────────────────────
 
     public String generateLessonVideoKey(Long courseId, Long lessonId,
@@ -192,6 +364,16 @@ public class MinioService {
         return sanitizeObjectKey(rawKey);
     }
 
+    public String generateSourceKey(String objectKey) {
+        return sanitizeObjectKey("sources/" + objectKey);
+    }
+
+    public String generateHlsPrefix(String objectKey) {
+        int dotIndex = objectKey.lastIndexOf('.');
+        String base = dotIndex > objectKey.lastIndexOf('/') ? objectKey.substring(0, dotIndex) : objectKey;
+        return base + "/hls/";
+    }
+
     public String generateHomeworkKey(Long courseId, Long lessonId,
                                       Long userId, String originalFilename) {
         String rawKey = String.format("courses/%d/lessons/%d/homework/user_%d_%d.%s",
@@ -11,6 +11,7 @@ import org.app.courseapp.model.users.User;
 import org.app.courseapp.repository.ParentRepository;
 import org.app.courseapp.repository.VideoCategoryRepository;
 import org.app.courseapp.repository.VideoRepository;
+import org.app.courseapp.security.PrincipalCache;
 import org.app.courseapp.service.ParentVideoAccessService;
 import org.app.courseapp.service.UserService;
 import org.app.courseapp.util.Mapper;
@@ -30,6 +31,7 @@ public class ParentVideoAccessServiceImpl implements ParentVideoAccessService {
     private final VideoCategoryRepository videoCategoryRepository;
     private final VideoRepository videoRepository;
     private final UserService userService;
+    private final PrincipalCache principalCache;
 
     private final Mapper mapper;
 
@@ -46,6 +48,8 @@ public class ParentVideoAccessServiceImpl implements ParentVideoAccessService {
 
         categories.forEach(parent::grantVideoAccess);
         parentRepository.save(parent);
+        parentRepository.incrementAccessVersion(parent.getId());
+        principalCache.invalidate(parent.getEmail());
 
         log.info("Admin granted video access to parent {} for categories: {}",
                 parent.getEmail(), categoryIds);
@@ -61,6 +65,8 @@ public class ParentVideoAccessServiceImpl implements ParentVideoAccessService {
 
         categories.forEach(parent::revokeVideoAccess);
         parentRepository.save(parent);
+        parentRepository.incrementAccessVersion(parent.getId());
+        principalCache.invalidate(parent.getEmail());
 
         log.info("Admin revoked video access from parent {} for categories: {}",
                 parent.getEmail(), categoryIds);
@@ -81,6 +87,8 @@ public class ParentVideoAccessServiceImpl implements ParentVideoAccessService {
         parent.getAllowedVideoCategories().clear();
         categories.forEach(parent::grantVideoAccess);
         parentRepository.save(parent);
+        parentRepository.incrementAccessVersion(parent.getId());
+        principalCache.invalidate(parent.getEmail());
 
         log.info("Admin set video access for parent {} to categories: {}",
                 parent.getEmail(), categoryIds);
@@ -119,13 +127,10 @@ public class ParentVideoAccessServiceImpl implements ParentVideoAccessService {
     public List<VideoCategoryDto> getMyAllowedCategories() {
         User currentUser = userService.getCurrentUser();
 
-        if (!(currentUser instanceof Parent)) {
+        if (!(currentUser instanceof Parent parent)) {
             throw new RuntimeException("Only parents have video category access");
         }
 
-        Parent parent = parentRepository.findById(currentUser.getId())
-                .orElseThrow(() -> new RuntimeException("Parent not found"));
-
         return parent.getAllowedVideoCategories().stream()
                 .map(VideoCategoryDto::fromEntity)
                 .collect(Collectors.toList());
@@ -136,13 +141,10 @@ public class ParentVideoAccessServiceImpl implements ParentVideoAccessService {
     public boolean hasAccessToVideo(Long videoId) {
         User currentUser = userService.getCurrentUser();
 
-        if (!(currentUser instanceof Parent)) {
+        if (!(currentUser instanceof Parent parent)) {
             return false;
         }
 
-        Parent parent = parentRepository.findById(currentUser.getId())
-                .orElseThrow(() -> new RuntimeException("Parent not found"));
-
         Video video = videoRepository.findById(videoId)
                 .orElseThrow(() -> new RuntimeException("Video not found"));
 
@@ -0,0 +1,304 @@
+package org.app.courseapp.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.repository.VideoProgressRepository;
+import org.app.courseapp.service.LessonCompletionService;
+import org.app.courseapp.util.WatchBitmap;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Буфер heartbeat'ов плеера (write-behind): на пару (пользователь, видео) в памяти
+ * держится максимум просмотренных секунд и карта просмотренных отрезков, в БД они уходят
+ * пачкой одним upsert'ом раз в flush-interval. Доступ к видео проверяется при первом heartbeat'е
+ * пары и действует, пока запись живёт в буфере, — повторные heartbeat'ы не ходят в БД.
+ * Видео засчитывается, когда реально просмотрено 90% отрезков (перемотка в конец не считается);
+ * завершение пишется сразу и закрывает урок, при остановке буфер сбрасывается.
+ * Запись в БД всегда идёт в собственной транзакции: сбой сброса не должен откатывать
+ * транзакцию вызывающего, записи просто остаются грязными до следующего сброса.
+ */
+@Service
+@Slf4j
+public class ProgressHeartbeatBuffer {
+
+    public static final double COMPLETION_THRESHOLD = 0.9;
+
+    // Через столько проверка доступа повторяется, даже если плеер шлёт heartbeat'ы без перерыва
+    private static final long ACCESS_RECHECK_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long IDLE_EVICT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    // Плеер без fromSeconds: отрезок между соседними heartbeat'ами считается просмотренным,
+    // если позиция ушла вперёд не дальше этого — иначе это перемотка
+    private static final long MAX_HEARTBEAT_GAP_SECONDS = 30;
+
+    private final VideoProgressRepository videoProgressRepository;
+    private final LessonCompletionService lessonCompletionService;
+    private final TransactionTemplate requiresNew;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    public ProgressHeartbeatBuffer(VideoProgressRepository videoProgressRepository,
+                                   LessonCompletionService lessonCompletionService,
+                                   PlatformTransactionManager transactionManager) {
+        this.videoProgressRepository = videoProgressRepository;
+        this.lessonCompletionService = lessonCompletionService;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    private record Key(Long userId, Long videoId) {}
+
+    private static final class Entry {
+        private final int bucketCount;
+        private final long verifiedAt = System.currentTimeMillis();
+        private final AtomicLong watched = new AtomicLong(-1);
+        // Состояние меняется под монитором записи: heartbeat'ы одной пары редки, конкуренции почти нет
+        private final BitSet buckets;
+        // Любое изменение увеличивает version; запись грязная, пока не сброшена последняя версия
+        private final AtomicLong version = new AtomicLong();
+        private final AtomicLong flushedVersion = new AtomicLong();
+        private volatile long lastPosition = -1;
+        private volatile LocalDateTime completedAt;
+        private volatile boolean completionApplied;
+        private volatile long lastSeen = verifiedAt;
+        // Запись убрана из карты: heartbeat, успевший взять на неё ссылку, должен перерегистрироваться
+        private boolean evicted;
+
+        private Entry(int bucketCount, BitSet buckets) {
+            this.bucketCount = bucketCount;
+            this.buckets = buckets;
+        }
+
+        private boolean isFresh(long now) {
+            return now - verifiedAt < ACCESS_RECHECK_MILLIS;
+        }
+
+        private boolean isDirty() {
+            return version.get() > flushedVersion.get();
+        }
+    }
+
+    /**
+     * @param fromSeconds начало просмотренного отрезка, если плеер его знает; иначе выводится
+     *                    из позиции предыдущего heartbeat'а
+     * @return false — пары нет в буфере (или доступ пора перепроверить): вызывающий
+     * проверяет доступ и вызывает {@link #register}
+     */
+    public boolean record(Long userId, Long videoId, long watchedSeconds, Long fromSeconds) {
+        Key key = new Key(userId, videoId);
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.isFresh(System.currentTimeMillis())) {
+            return false;
+        }
+        return merge(key, entry, watchedSeconds, fromSeconds);
+    }
+
+    public void register(Long userId, Long videoId, Long durationSeconds, long watchedSeconds, Long fromSeconds) {
+        Key key = new Key(userId, videoId);
+        while (true) {
+            Entry fresh = load(userId, videoId, durationSeconds);
+            Entry entry = entries.compute(key, (k, existing) -> {
+                if (existing == null) {
+                    return fresh;
+                }
+                synchronized (existing) {
+                    if (existing.isFresh(System.currentTimeMillis())) {
+                        return existing;
+                    }
+                    // Несброшенное состояние переносится в новую запись, чтобы не потеряться
+                    fresh.watched.accumulateAndGet(existing.watched.get(), Math::max);
+                    if (existing.bucketCount == fresh.bucketCount) {
+                        fresh.buckets.or(existing.buckets);
+                    }
+                    fresh.version.set(existing.isDirty() ? 1 : 0);
+                    fresh.lastPosition = existing.lastPosition;
+                    fresh.completedAt = existing.completedAt;
+                    fresh.completionApplied = existing.completionApplied;
+                    existing.evicted = true;
+                }
+                return fresh;
+            });
+            // Запись могли вытеснить между compute и слиянием — тогда регистрируемся заново
+            if (merge(key, entry, watchedSeconds, fromSeconds)) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${video.progress.flush-interval-ms:10000}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        List<Key> keys = new ArrayList<>();
+        List<Entry> batch = new ArrayList<>();
+
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.isDirty()) {
+                keys.add(e.getKey());
+                batch.add(entry);
+            } else if (now - entry.lastSeen > IDLE_EVICT_MILLIS || !entry.isFresh(now)) {
+                evictIfClean(e.getKey(), entry);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            write(keys, batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Карта пары поднимается из БД один раз на окно буфера, дальше покрытие считается в памяти
+    private Entry load(Long userId, Long videoId, Long durationSeconds) {
+        int bucketCount = WatchBitmap.bucketCount(durationSeconds);
+        BitSet buckets = new BitSet(bucketCount);
+        if (bucketCount > 0) {
+            videoProgressRepository.findWatchState(userId, videoId)
+                    .ifPresent(state -> restore(buckets, state, bucketCount));
+        }
+        return new Entry(bucketCount, buckets);
+    }
+
+    static void restore(BitSet buckets, VideoProgressRepository.WatchState state, int bucketCount) {
+        String bits = state.getWatchedBuckets();
+        if (bits != null && bits.length() == bucketCount) {
+            buckets.or(WatchBitmap.fromBits(bits));
+        } else if (bits == null && state.getWatchedSeconds() != null) {
+            // Прогресс до появления карт: считаем просмотренным всё до отметки
+            WatchBitmap.mark(buckets, 0, state.getWatchedSeconds(), bucketCount);
+        }
+    }
+
+    // Под тем же монитором, под которым flush решает вытеснить запись: изменение не может
+    // попасть в запись, которую уже убрали из карты
+    private void evictIfClean(Key key, Entry entry) {
+        entries.computeIfPresent(key, (k, current) -> {
+            if (current != entry) {
+                return current;
+            }
+            synchronized (current) {
+                if (current.isDirty()) {
+                    return current;
+                }
+                current.evicted = true;
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return false — запись уже вытеснена, heartbeat в неё не попал
+     */
+    private boolean merge(Key key, Entry entry, long watchedSeconds, Long fromSeconds) {
+        boolean completedNow = false;
+        synchronized (entry) {
+            if (entry.evicted) {
+                return false;
+            }
+            entry.lastSeen = System.currentTimeMillis();
+            long previousWatched = entry.watched.getAndAccumulate(watchedSeconds, Math::max);
+            boolean changed = watchedSeconds > previousWatched;
+
+            long previousPosition = entry.lastPosition;
+            entry.lastPosition = watchedSeconds;
+            long from = watchedSeconds;
+            if (fromSeconds != null) {
+                from = fromSeconds;
+            } else if (previousPosition >= 0 && watchedSeconds >= previousPosition
+                    && watchedSeconds - previousPosition <= MAX_HEARTBEAT_GAP_SECONDS) {
+                from = previousPosition;
+            }
+
+            changed |= WatchBitmap.mark(entry.buckets, from, watchedSeconds, entry.bucketCount);
+            if (changed) {
+                entry.version.incrementAndGet();
+            }
+
+            if (entry.completedAt == null && isCovered(entry.buckets, entry.bucketCount)) {
+                entry.completedAt = LocalDateTime.now();
+                entry.version.incrementAndGet();
+                completedNow = true;
+            }
+        }
+
+        if (completedNow) {
+            // Завершение не ждёт очередного сброса
+            write(List.of(key), List.of(entry));
+        }
+        return true;
+    }
+
+    // Правило завершения для всех путей записи прогресса: просмотрено не меньше 90% отрезков
+    public static boolean isCovered(BitSet buckets, int bucketCount) {
+        return bucketCount > 0 && buckets.cardinality() >= bucketCount * COMPLETION_THRESHOLD;
+    }
+
+    private void write(List<Key> keys, List<Entry> batch) {
+        int size = batch.size();
+        Long[] userIds = new Long[size];
+        Long[] videoIds = new Long[size];
+        Long[] watched = new Long[size];
+        LocalDateTime[] completedAt = new LocalDateTime[size];
+        String[] watchedBuckets = new String[size];
+        long[] versions = new long[size];
+        for (int i = 0; i < size; i++) {
+            Entry entry = batch.get(i);
+            // Версия снимается до данных: изменение, пришедшее во время записи, оставит запись грязной
+            versions[i] = entry.version.get();
+            userIds[i] = keys.get(i).userId();
+            videoIds[i] = keys.get(i).videoId();
+            watched[i] = Math.max(entry.watched.get(), 0);
+            completedAt[i] = entry.completedAt;
+            if (entry.bucketCount > 0) {
+                synchronized (entry) {
+                    watchedBuckets[i] = WatchBitmap.toBits(entry.buckets, entry.bucketCount);
+                }
+            }
+        }
+
+        try {
+            requiresNew.executeWithoutResult(status -> videoProgressRepository
+                    .upsertProgressBatch(userIds, videoIds, watched, completedAt, watchedBuckets));
+        } catch (Exception e) {
+            // Записи остаются «грязными» и уйдут следующим сбросом
+            log.warn("Failed to flush {} progress heartbeats: {}", size, e.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            Entry entry = batch.get(i);
+            entry.flushedVersion.accumulateAndGet(versions[i], Math::max);
+            if (completedAt[i] != null && !entry.completionApplied) {
+                entry.completionApplied = true;
+                applyCompletion(keys.get(i));
+            }
+        }
+        log.debug("Flushed {} progress heartbeats", size);
+    }
+
+    private void applyCompletion(Key key) {
+        try {
+            requiresNew.executeWithoutResult(status ->
+                    lessonCompletionService.onVideoCompleted(key.userId(), key.videoId()));
+        } catch (Exception e) {
+            // Отметку урока доберёт ночной rebuild из video_progress
+            log.warn("Failed to apply completion of video {} for user {}: {}",
+                    key.videoId(), key.userId(), e.getMessage());
+        }
+    }
+}
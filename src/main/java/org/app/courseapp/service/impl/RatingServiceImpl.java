@@ -13,6 +13,7 @@ import org.app.courseapp.model.users.Parent;
 import org.app.courseapp.model.users.Specialist;
 import org.app.courseapp.model.users.User;
 import org.app.courseapp.repository.*;
+import org.app.courseapp.service.CourseRatingSummaryService;
 import org.app.courseapp.service.RatingService;
 import org.app.courseapp.service.UserService;
 import org.app.courseapp.util.Mapper;
@@ -23,7 +24,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -38,6 +38,7 @@ public class RatingServiceImpl implements RatingService {
     private final UserRepository userRepository;
 
     private final SpecialistReviewRepository specialistReviewRepository;
+    private final CourseRatingSummaryService ratingSummaryService;
     private final Mapper mapper;
 
     @Override
@@ -62,6 +63,7 @@ public class RatingServiceImpl implements RatingService {
         CourseReview review;
         if (existingReview.isPresent()) {
             review = existingReview.get();
+            ratingSummaryService.onRatingChanged(course.getId(), review.getRating(), request.getRating());
             review.setRating(request.getRating());
             // reviewText остается как есть (может быть null или старый текст)
             log.info("Parent {} updated rating for course {} to {}",
@@ -73,6 +75,7 @@ public class RatingServiceImpl implements RatingService {
             review.setRating(request.getRating());
             review.setReviewText(null); // Только рейтинг, без текста
             review.setLikeCount(0);
+            ratingSummaryService.onRatingAdded(course.getId(), request.getRating());
             log.info("Parent {} rated course {} with {} stars",
                     currentUser.getEmail(), course.getTitle(), request.getRating());
         }
@@ -103,39 +106,32 @@ public class RatingServiceImpl implements RatingService {
         review.setReviewText(request.getReviewText());
         review.setLikeCount(0);
 
+        ReviewDto dto = mapper.convertToReviewDto(reviewRepository.save(review), currentUser.getId());
+        ratingSummaryService.onRatingAdded(course.getId(), request.getRating());
+
         log.info("Parent {} created review for course {}", currentUser.getEmail(), course.getTitle());
-        return mapper.convertToReviewDto(reviewRepository.save(review), currentUser.getId());
+        return dto;
     }
 
     @Override
     @Transactional(readOnly = true)
     public CourseRatingStatsDto getCourseRatingStats(Long courseId) {
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new RuntimeException("Course not found"));
-
-        // Теперь только один источник - reviewRepository
-        Double averageRating = reviewRepository.findAverageRatingByCourseId(courseId);
-        Long totalRatings = reviewRepository.countByCourseId(courseId);
-
-        if (averageRating == null) {
-            averageRating = 0.0;
-            totalRatings = 0L;
+        CourseRatingSummary summary = ratingSummaryService.getSummary(courseId);
+        // Строки нет только у курса без оценок, созданного после последнего rebuild, — или у несуществующего
+        if (summary.getUpdatedAt() == null && !courseRepository.existsById(courseId)) {
+            throw new RuntimeException("Course not found");
         }
-
-        // Count ratings by star level
-        List<CourseReview> allReviews = reviewRepository.findByCourseId(courseId);
-        Map<Integer, Long> ratingCounts = allReviews.stream()
-                .collect(Collectors.groupingBy(CourseReview::getRating, Collectors.counting()));
+        double averageRating = summary.getAverageRating();
 
         return CourseRatingStatsDto.builder()
                 .averageRating(averageRating)
-                .totalRatings(totalRatings)
+                .totalRatings(summary.getRatingCount())
                 .formattedRating(String.format("%.1f", averageRating))
-                .fiveStarCount(ratingCounts.getOrDefault(5, 0L))
-                .fourStarCount(ratingCounts.getOrDefault(4, 0L))
-                .threeStarCount(ratingCounts.getOrDefault(3, 0L))
-                .twoStarCount(ratingCounts.getOrDefault(2, 0L))
-                .oneStarCount(ratingCounts.getOrDefault(1, 0L))
+                .fiveStarCount(summary.getFiveStar())
+                .fourStarCount(summary.getFourStar())
+                .threeStarCount(summary.getThreeStar())
+                .twoStarCount(summary.getTwoStar())
+                .oneStarCount(summary.getOneStar())
                 .build();
     }
 
@@ -145,14 +141,7 @@ public class RatingServiceImpl implements RatingService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
 
-        User currentUser = null;
-        try {
-            currentUser = userService.getCurrentUser();
-        } catch (Exception e) {
-            // Anonymous user
-        }
-
-        Long userId = currentUser != null ? currentUser.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         // Фильтруем только отзывы С ТЕКСТОМ для отображения
         Page<CourseReview> reviews = reviewRepository
@@ -164,14 +153,7 @@ public class RatingServiceImpl implements RatingService {
     @Override
     @Transactional(readOnly = true)
     public Page<ReviewDto> getAllReviews(Pageable pageable) {
-        User currentUser = null;
-        try {
-            currentUser = userService.getCurrentUser();
-        } catch (Exception e) {
-            // Anonymous user
-        }
-
-        Long userId = currentUser != null ? currentUser.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         // Только отзывы с текстом
         Page<CourseReview> reviews = reviewRepository
@@ -184,6 +166,7 @@ public class RatingServiceImpl implements RatingService {
     @Transactional(readOnly = true)
     public List<CourseReviewDto> getAllCoursesWithRatings() {
         List<Course> courses = courseRepository.findAll();
+        Map<Long, CourseRatingSummary> summaries = ratingSummaryService.getAllSummaries();
 
         String[] colors = {
                 "#4CAF50", "#2196F3", "#9C27B0", "#FF9800",
@@ -195,14 +178,9 @@ public class RatingServiceImpl implements RatingService {
         for (int i = 0; i < courses.size(); i++) {
             Course course = courses.get(i);
 
-            // Один источник данных
-            Double averageRating = reviewRepository.findAverageRatingByCourseId(course.getId());
-            Long reviewCount = reviewRepository.countByCourseId(course.getId());
-
-            if (averageRating == null) {
-                averageRating = 0.0;
-                reviewCount = 0L;
-            }
+            CourseRatingSummary summary = summaries.get(course.getId());
+            double averageRating = summary != null ? summary.getAverageRating() : 0.0;
+            long reviewCount = summary != null ? summary.getRatingCount() : 0L;
 
             CourseReviewDto dto = CourseReviewDto.builder()
                     .courseId(course.getId())
@@ -223,45 +201,31 @@ public class RatingServiceImpl implements RatingService {
     @Transactional
     public void toggleReviewLike(Long reviewId) {
         User currentUser = userService.getCurrentUser();
-        CourseReview review = reviewRepository.findById(reviewId)
-                .orElseThrow(() -> new RuntimeException("Review not found"));
-
-        Optional<ReviewLike> existing = reviewLikeRepository
-                .findByUserIdAndCourseReviewId(currentUser.getId(), reviewId);
+        if (!reviewRepository.existsById(reviewId)) {
+            throw new RuntimeException("Review not found");
+        }
 
-        if (existing.isPresent()) {
-            reviewLikeRepository.delete(existing.get());
-            review.setLikeCount(Math.max(0, review.getLikeCount() - 1));
-        } else {
-            ReviewLike like = new ReviewLike();
-            like.setUser(currentUser);
-            like.setCourseReview(review);
-            reviewLikeRepository.save(like);
-            review.incrementLikeCount();
+        // Счётчик меняется только если строка лайка реально удалена/вставлена —
+        // двойной клик или гонка двух запросов не собьют like_count
+        if (reviewLikeRepository.deleteCourseReviewLike(currentUser.getId(), reviewId) > 0) {
+            reviewRepository.addLikes(reviewId, -1);
+        } else if (reviewLikeRepository.insertCourseReviewLike(currentUser.getId(), reviewId) > 0) {
+            reviewRepository.addLikes(reviewId, 1);
         }
-        reviewRepository.save(review);
     }
     @Override
     @Transactional
     public void toggleSpecialistReviewLike(Long reviewId) {
         User currentUser = userService.getCurrentUser();
-        SpecialistReview review = specialistReviewRepository.findById(reviewId)
-                .orElseThrow(() -> new RuntimeException("Review not found"));
-
-        Optional<ReviewLike> existing = reviewLikeRepository
-                .findByUserIdAndSpecialistReviewId(currentUser.getId(), reviewId);
+        if (!specialistReviewRepository.existsById(reviewId)) {
+            throw new RuntimeException("Review not found");
+        }
 
-        if (existing.isPresent()) {
-            reviewLikeRepository.delete(existing.get());
-            review.setLikeCount(Math.max(0, review.getLikeCount() - 1));
-        } else {
-            ReviewLike like = new ReviewLike();
-            like.setUser(currentUser);
-            like.setSpecialistReview(review);
-            reviewLikeRepository.save(like);
-            review.setLikeCount(review.getLikeCount() + 1);
+        if (reviewLikeRepository.deleteSpecialistReviewLike(currentUser.getId(), reviewId) > 0) {
+            specialistReviewRepository.addLikes(reviewId, -1);
+        } else if (reviewLikeRepository.insertSpecialistReviewLike(currentUser.getId(), reviewId) > 0) {
+            specialistReviewRepository.addLikes(reviewId, 1);
         }
-        specialistReviewRepository.save(review);
     }
     @Override
     @Transactional
@@ -276,32 +240,26 @@ public class RatingServiceImpl implements RatingService {
         }
 
         reviewRepository.delete(review);
+        ratingSummaryService.onRatingRemoved(review.getCourse().getId(), review.getRating());
         log.info("Review {} deleted by user {}", reviewId, currentUser.getEmail());
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean hasUserRatedCourse(Long courseId) {
-        try {
-            User currentUser = userService.getCurrentUser();
-            return reviewRepository.existsByUserIdAndCourseId(currentUser.getId(), courseId);
-        } catch (Exception e) {
-            return false;
-        }
+        return userService.getCurrentUserId()
+                .map(userId -> reviewRepository.existsByUserIdAndCourseId(userId, courseId))
+                .orElse(false);
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean hasUserReviewedCourse(Long courseId) {
-        try {
-            User currentUser = userService.getCurrentUser();
-            // Проверяем, что есть запись И есть текст отзыва
-            Optional<CourseReview> review = reviewRepository
-                    .findByUserIdAndCourseId(currentUser.getId(), courseId);
-            return review.isPresent() && review.get().getReviewText() != null;
-        } catch (Exception e) {
-            return false;
-        }
+        // Проверяем, что есть запись И есть текст отзыва
+        return userService.getCurrentUserId()
+                .flatMap(userId -> reviewRepository.findByUserIdAndCourseId(userId, courseId))
+                .map(review -> review.getReviewText() != null)
+                .orElse(false);
     }
 
     @Override
@@ -355,9 +313,7 @@ public class RatingServiceImpl implements RatingService {
     @Override
     @Transactional(readOnly = true)
     public Page<SpecialistReviewDto> getSpecialistReviews(Long specialistId, Pageable pageable) {
-        User currentUser = null;
-        try { currentUser = userService.getCurrentUser(); } catch (Exception ignored) {}
-        Long userId = currentUser != null ? currentUser.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         return specialistReviewRepository
                 .findBySpecialistIdAndReviewTextIsNotNullOrderByLikeCountDescCreatedAtDesc(specialistId, pageable)
@@ -373,7 +329,10 @@ public class RatingServiceImpl implements RatingService {
         if (!review.getUser().getId().equals(currentUser.getId())) {
             throw new RuntimeException("Access denied");
         }
-        if (request.getRating() != null) review.setRating(request.getRating());
+        if (request.getRating() != null) {
+            ratingSummaryService.onRatingChanged(review.getCourse().getId(), review.getRating(), request.getRating());
+            review.setRating(request.getRating());
+        }
         if (request.getReviewText() != null) review.setReviewText(request.getReviewText());
         return mapper.convertToReviewDto(reviewRepository.save(review), currentUser.getId());
     }
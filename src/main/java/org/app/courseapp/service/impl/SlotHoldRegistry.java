@@ -0,0 +1,157 @@
+package org.app.courseapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.model.SpecialistSlot;
+import org.app.courseapp.repository.SpecialistSlotRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Действующие удержания слотов в памяти узла. Нужны, чтобы при наплыве на один слот
+ * проигравшие получали отказ сразу, без UPDATE в БД. Источник правды — held_until
+ * в specialist_slots: после рестарта удержания поднимаются оттуда.
+ * Истечение — колесо таймеров с шагом в секунду: тик разбирает только свою корзину,
+ * а не все удержания. Без блокировок: ConcurrentHashMap + условные remove.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SlotHoldRegistry {
+
+    public static final Duration HOLD_TTL = Duration.ofMinutes(5);
+
+    private static final long TICK_MILLIS = 1_000;
+    // Больше HOLD_TTL в тиках: удержание укладывается в один оборот колеса
+    private static final int WHEEL_SIZE = 512;
+
+    private final SpecialistSlotRepository slotRepository;
+    private final AvailabilityIndex availabilityIndex;
+
+    private final Map<SlotKey, Hold> holds = new ConcurrentHashMap<>();
+    private final Queue<SlotKey>[] wheel = newWheel();
+    private final AtomicLong lastTick = new AtomicLong(currentTick());
+
+    public record SlotKey(Long specialistId, LocalDate date, LocalTime time) {}
+
+    private record Hold(Long parentId, long deadlineMillis) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromDatabase() {
+        LocalDateTime now = LocalDateTime.now();
+        int loaded = 0;
+        for (SpecialistSlot slot : slotRepository.findActiveHolds(now)) {
+            put(keyOf(slot), slot.getHeldBy().getId(), slot.getHeldUntil());
+            loaded++;
+        }
+        log.info("Loaded {} active slot holds", loaded);
+    }
+
+    public boolean isHeldByOther(SlotKey key, Long parentId) {
+        Hold hold = holds.get(key);
+        return hold != null
+                && !hold.parentId().equals(parentId)
+                && hold.deadlineMillis() > System.currentTimeMillis();
+    }
+
+    // Вызывается после того, как удержание выиграно в БД — здесь спорить уже не с кем
+    public void put(SlotKey key, Long parentId, LocalDateTime until) {
+        long deadline = until.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        holds.put(key, new Hold(parentId, deadline));
+        // Корзина тика, к началу которого удержание уже истекло
+        long deadlineTick = (deadline + TICK_MILLIS - 1) / TICK_MILLIS;
+        wheel[bucketOf(Math.max(deadlineTick, lastTick.get() + 1))].add(key);
+    }
+
+    /**
+     * Удержание видно остальным запросам только после коммита: если транзакция откатится,
+     * в памяти не останется удержания, которого нет в БД.
+     */
+    public void putAfterCommit(SlotKey key, Long parentId, LocalDateTime until) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(key, parentId, until);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(key, parentId, until);
+            }
+        });
+    }
+
+    public void release(SlotKey key) {
+        holds.remove(key);
+    }
+
+    @Scheduled(fixedRate = TICK_MILLIS)
+    public void tick() {
+        long now = System.currentTimeMillis();
+        long target = now / TICK_MILLIS;
+        long from = lastTick.get();
+        // Пропущенные тики (пауза GC, долгий предыдущий тик) разбираются все, но не больше оборота
+        if (target <= from || !lastTick.compareAndSet(from, target)) {
+            return;
+        }
+
+        Set<Long> expiredSpecialists = new HashSet<>();
+        for (long t = Math.max(from + 1, target - WHEEL_SIZE + 1); t <= target; t++) {
+            Queue<SlotKey> bucket = wheel[bucketOf(t)];
+            SlotKey key;
+            while ((key = bucket.poll()) != null) {
+                Hold hold = holds.get(key);
+                if (hold == null) {
+                    continue;
+                }
+                if (hold.deadlineMillis() > now) {
+                    // Продлённое удержание уже лежит в своей корзине; старую запись просто отбрасываем
+                    continue;
+                }
+                if (holds.remove(key, hold)) {
+                    expiredSpecialists.add(key.specialistId());
+                }
+            }
+        }
+
+        // held_until в БД не чистится: истёкшее удержание и так не мешает ни брони, ни выдаче
+        expiredSpecialists.forEach(availabilityIndex::refresh);
+    }
+
+    public static SlotKey keyOf(SpecialistSlot slot) {
+        return new SlotKey(slot.getSpecialist().getId(), slot.getDate(), slot.getTime());
+    }
+
+    private static long currentTick() {
+        return System.currentTimeMillis() / TICK_MILLIS;
+    }
+
+    private static int bucketOf(long tick) {
+        return (int) (tick & (WHEEL_SIZE - 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Queue<SlotKey>[] newWheel() {
+        Queue<SlotKey>[] wheel = new Queue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        return wheel;
+    }
+}
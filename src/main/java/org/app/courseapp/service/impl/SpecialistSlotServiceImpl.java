@@ -5,21 +5,30 @@ import lombok.extern.slf4j.Slf4j;
 import org.app.courseapp.dto.request.AddSlotsRequest;
 import org.app.courseapp.dto.request.BookSlotRequest;
 import org.app.courseapp.dto.request.SetWeeklyScheduleRequest;
+import org.app.courseapp.dto.response.AvailableSpecialistDto;
 import org.app.courseapp.dto.response.BookingConfirmationDto;
 import org.app.courseapp.dto.response.BookingHistoryDto;
+import org.app.courseapp.dto.response.SlotHoldDto;
 import org.app.courseapp.dto.response.SpecialistSlotDto;
 import org.app.courseapp.dto.response.WeekSlotsDto;
 import org.app.courseapp.model.Booking;
 import org.app.courseapp.model.BookingStatus;
+import org.app.courseapp.model.ScheduleExceptionType;
+import org.app.courseapp.model.SpecialistScheduleException;
+import org.app.courseapp.model.SpecialistScheduleRule;
 import org.app.courseapp.model.SpecialistSlot;
 import org.app.courseapp.model.users.Parent;
 import org.app.courseapp.model.users.Specialist;
 import org.app.courseapp.model.users.User;
 import org.app.courseapp.repository.BookingRepository;
+import org.app.courseapp.repository.SpecialistRepository;
+import org.app.courseapp.repository.SpecialistScheduleExceptionRepository;
+import org.app.courseapp.repository.SpecialistScheduleRuleRepository;
 import org.app.courseapp.repository.SpecialistSlotRepository;
 import org.app.courseapp.repository.UserRepository;
 import org.app.courseapp.service.SpecialistSlotService;
 import org.app.courseapp.util.Mapper;
+import org.app.courseapp.util.SlotAvailabilityCalculator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,7 +37,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -38,26 +52,49 @@ public class SpecialistSlotServiceImpl implements SpecialistSlotService {
     private final BookingRepository bookingRepository;
     private final SpecialistSlotRepository slotRepository;
     private final UserRepository userRepository;
+    private final SpecialistRepository specialistRepository;
+    private final SpecialistScheduleRuleRepository ruleRepository;
+    private final SpecialistScheduleExceptionRepository exceptionRepository;
+    private final SlotAvailabilityCalculator availabilityCalculator;
+    private final AvailabilityIndex availabilityIndex;
+    private final SlotHoldRegistry holdRegistry;
     private final Mapper mapper;
 
+    private static final int DEFAULT_HORIZON_WEEKS = 4;
+    // Окно считается в памяти, ограничиваем его, чтобы один запрос не разворачивал годы расписания
+    private static final int MAX_WINDOW_DAYS = 92;
+    // Слоты из правила бесконечны — дальше этого бронировать и удерживать нельзя
+    private static final int BOOKING_HORIZON_DAYS = 90;
+
     @Override
     @Transactional
     public void addSlots(AddSlotsRequest request, String email) {
         Specialist specialist = getSpecialist(email);
 
-        List<SpecialistSlot> newSlots = request.getTimes().stream()
-                .filter(time -> !slotRepository.existsBySpecialistIdAndDateAndTime(
-                        specialist.getId(), request.getDate(), time))
-                .map(time -> SpecialistSlot.builder()
+        // Одним запросом все исключения на дату, дальше сверка в памяти
+        Map<LocalTime, SpecialistScheduleException> existing = exceptionRepository
+                .findBySpecialistIdAndDate(specialist.getId(), request.getDate()).stream()
+                .collect(Collectors.toMap(SpecialistScheduleException::getTime, Function.identity()));
+
+        List<SpecialistScheduleException> changed = new ArrayList<>();
+        for (LocalTime time : new LinkedHashSet<>(request.getTimes())) {
+            SpecialistScheduleException exception = existing.get(time);
+            if (exception == null) {
+                changed.add(SpecialistScheduleException.builder()
                         .specialist(specialist)
                         .date(request.getDate())
                         .time(time)
-                        .booked(false)
-                        .build())
-                .toList();
+                        .type(ScheduleExceptionType.EXTRA)
+                        .build());
+            } else if (exception.getType() != ScheduleExceptionType.EXTRA) {
+                exception.setType(ScheduleExceptionType.EXTRA);
+                changed.add(exception);
+            }
+        }
 
-        slotRepository.saveAll(newSlots);
-        log.info("Specialist {} added {} slots for {}", email, newSlots.size(), request.getDate());
+        exceptionRepository.saveAll(changed);
+        availabilityIndex.refreshAfterCommit(specialist.getId());
+        log.info("Specialist {} added {} slots for {}", email, changed.size(), request.getDate());
     }
 
     @Override
@@ -77,16 +114,46 @@ public class SpecialistSlotServiceImpl implements SpecialistSlotService {
         }
 
         slotRepository.delete(slot);
+        availabilityIndex.refreshAfterCommit(specialist.getId());
+    }
+
+    @Override
+    @Transactional
+    public void blockSlot(LocalDate date, LocalTime time, String email) {
+        Specialist specialist = getSpecialist(email);
+
+        SpecialistSlot row = slotRepository.findBySpecialistIdAndDateBetween(specialist.getId(), date, date).stream()
+                .filter(slot -> slot.getTime().equals(time))
+                .findFirst()
+                .orElse(null);
+        if (row != null && row.isBooked()) {
+            throw new RuntimeException("Cannot delete a booked slot");
+        }
+        if (row != null) {
+            // Незанятая строка, созданная до перехода на правила
+            slotRepository.delete(row);
+        }
+
+        SpecialistScheduleException exception = exceptionRepository
+                .findBySpecialistIdAndDateAndTime(specialist.getId(), date, time)
+                .orElseGet(() -> SpecialistScheduleException.builder()
+                        .specialist(specialist)
+                        .date(date)
+                        .time(time)
+                        .build());
+        exception.setType(ScheduleExceptionType.BLOCKED);
+        exceptionRepository.save(exception);
+        availabilityIndex.refreshAfterCommit(specialist.getId());
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<SpecialistSlotDto> getMySlots(String email) {
+    public List<SpecialistSlotDto> getMySlots(String email, LocalDate from, LocalDate to) {
         Specialist specialist = getSpecialist(email);
-        return slotRepository.findBySpecialistIdOrderByDateAscTimeAsc(specialist.getId())
-                .stream()
-                .map(mapper::convertToSpecialistSlotDto)
-                .toList();
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : start.plusWeeks(DEFAULT_HORIZON_WEEKS);
+        validateWindow(start, end);
+        return availabilityCalculator.compute(specialist.getId(), start, end, true);
     }
 
     @Override
@@ -94,52 +161,49 @@ public class SpecialistSlotServiceImpl implements SpecialistSlotService {
     public void setWeeklySchedule(SetWeeklyScheduleRequest request, String email) {
         Specialist specialist = getSpecialist(email);
 
+        if (!request.getStartTime().isBefore(request.getEndTime()) || request.getSlotDurationMinutes() <= 0) {
+            throw new RuntimeException("Invalid schedule: start must be before end and slot duration positive");
+        }
+
         LocalDate today = LocalDate.now();
-        LocalDate endDate = today.plusWeeks(4);
 
+        // Правило заменяет прежнее расписание целиком, как раньше перегенерация слотов:
+        // будущие разовые слоты/закрытия и старые незанятые строки сбрасываются, брони остаются
         slotRepository.deleteAllFutureUnbookedSlots(specialist.getId(), today);
-
-        List<SpecialistSlot> slots = new ArrayList<>();
-
-        today.datesUntil(endDate).forEach(date -> {
-            if (request.getWorkDays().contains(date.getDayOfWeek())) {
-                LocalTime time = request.getStartTime();
-                while (time.isBefore(request.getEndTime())) {
-                    LocalTime finalTime = time;
-                    slots.add(SpecialistSlot.builder()
-                            .specialist(specialist)
-                            .date(date)
-                            .time(finalTime)
-                            .booked(false)
-                            .build());
-                    time = time.plusMinutes(request.getSlotDurationMinutes());
-                }
-            }
-        });
-
-        slotRepository.saveAll(slots);
-        log.info("Specialist {} updated weekly schedule: {} slots generated", email, slots.size());
+        exceptionRepository.deleteFutureExceptions(specialist.getId(), today);
+
+        SpecialistScheduleRule rule = ruleRepository.findBySpecialistId(specialist.getId())
+                .orElseGet(() -> SpecialistScheduleRule.builder().specialist(specialist).build());
+        rule.setWorkDaysMask(SpecialistScheduleRule.toMask(request.getWorkDays()));
+        rule.setStartTime(request.getStartTime());
+        rule.setEndTime(request.getEndTime());
+        rule.setSlotDurationMinutes(request.getSlotDurationMinutes());
+        rule.setValidFrom(today);
+        ruleRepository.save(rule);
+        availabilityIndex.refreshAfterCommit(specialist.getId());
+
+        log.info("Specialist {} updated weekly schedule: {} {}-{} every {} min",
+                email, request.getWorkDays(), request.getStartTime(), request.getEndTime(),
+                request.getSlotDurationMinutes());
     }
 
     @Override
     @Transactional(readOnly = true)
-    public WeekSlotsDto getAvailableSlots(Long specialistId) {
-        Specialist specialist = (Specialist) userRepository.findById(specialistId)
+    public WeekSlotsDto getAvailableSlots(Long specialistId, LocalDate from, LocalDate to) {
+        Specialist specialist = specialistRepository.findById(specialistId)
                 .orElseThrow(() -> new RuntimeException("Specialist not found: " + specialistId));
 
-        LocalDate today = LocalDate.now();
-        LocalDate weekEnd = today.with(DayOfWeek.MONDAY).plusDays(6);
+        // По умолчанию — остаток текущей недели, как и раньше
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : LocalDate.now().with(DayOfWeek.MONDAY).plusDays(6);
+        validateWindow(start, end);
 
-        List<SpecialistSlotDto> slots = slotRepository
-                .findAvailableSlots(specialistId, today, weekEnd)
-                .stream()
-                .map(mapper::convertToSpecialistSlotDto)
-                .toList();
+        List<SpecialistSlotDto> slots = availabilityCalculator.compute(specialistId, start, end, false);
 
         return WeekSlotsDto.builder()
                 .specialistId(specialistId)
                 .specialistName(specialist.getName() + " " + specialist.getSurname())
-                .weekDays(today.datesUntil(weekEnd.plusDays(1)).toList())
+                .weekDays(start.datesUntil(end.plusDays(1)).toList())
                 .slots(slots)
                 .build();
     }
@@ -154,21 +218,54 @@ public class SpecialistSlotServiceImpl implements SpecialistSlotService {
                 .toList();
     }
 
+    /**
+     * Удержание слота на время оформления: остальные родители видят слот занятым
+     * и получают отказ сразу, а подтверждение — один условный UPDATE.
+     */
     @Override
     @Transactional
-    public BookingConfirmationDto bookSlot(BookSlotRequest request, String email) {
+    public SlotHoldDto holdSlot(BookSlotRequest request, String email) {
         Parent parent = getParent(email);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(SlotHoldRegistry.HOLD_TTL);
+
+        SpecialistSlot slot = request.getSlotId() != null
+                ? holdExistingSlot(request.getSlotId(), parent, now, until)
+                : holdScheduledSlot(request, parent, now, until);
+
+        holdRegistry.putAfterCommit(SlotHoldRegistry.keyOf(slot), parent.getId(), until);
+        availabilityIndex.refreshAfterCommit(slot.getSpecialist().getId());
+
+        return SlotHoldDto.builder()
+                .slotId(slot.getId())
+                .specialistId(slot.getSpecialist().getId())
+                .date(slot.getDate())
+                .time(slot.getTime())
+                .heldUntil(until)
+                .build();
+    }
 
-        SpecialistSlot slot = slotRepository.findById(request.getSlotId())
-                .orElseThrow(() -> new RuntimeException("Slot not found: " + request.getSlotId()));
-
-        if (slot.isBooked()) {
-            throw new RuntimeException("Slot is already booked");
+    @Override
+    @Transactional
+    public void releaseHold(Long slotId, String email) {
+        Parent parent = getParent(email);
+        if (slotRepository.releaseHold(slotId, parent) == 0) {
+            throw new RuntimeException("Hold not found");
         }
+        SpecialistSlot slot = slotRepository.findWithSpecialistById(slotId)
+                .orElseThrow(() -> new RuntimeException("Slot not found: " + slotId));
+        holdRegistry.release(SlotHoldRegistry.keyOf(slot));
+        availabilityIndex.refreshAfterCommit(slot.getSpecialist().getId());
+    }
 
-        slot.setBooked(true);
-        slot.setBookedBy(parent);
-        slotRepository.save(slot);
+    @Override
+    @Transactional
+    public BookingConfirmationDto bookSlot(BookSlotRequest request, String email) {
+        Parent parent = getParent(email);
+
+        SpecialistSlot slot = request.getSlotId() != null
+                ? claimExistingSlot(request.getSlotId(), parent)
+                : claimScheduledSlot(request, parent);
 
         Booking booking = Booking.builder()
                 .parent(parent)
@@ -178,9 +275,10 @@ public class SpecialistSlotServiceImpl implements SpecialistSlotService {
                 .build();
 
         bookingRepository.save(booking);
-        Specialist specialist = slot.getSpecialist();
-            specialist.setSessionCount(specialist.getSessionCount() + 1);
-        userRepository.save(specialist);
+        // Инкремент в SQL: одновременные бронирования к одному специалисту не теряют сессии
+        specialistRepository.addSessions(slot.getSpecialist().getId(), 1);
+        holdRegistry.release(SlotHoldRegistry.keyOf(slot));
+        availabilityIndex.refreshAfterCommit(slot.getSpecialist().getId());
 
         log.info("Parent {} booked slot {} with specialist {}",
                 email, slot.getId(), slot.getSpecialist().getEmail());
@@ -188,6 +286,145 @@ public class SpecialistSlotServiceImpl implements SpecialistSlotService {
         return mapper.convertToBookingConfirmationDto(booking);
     }
 
+    /**
+     * Поиск по всем специалистам: фильтры по специализации и цене — один запрос,
+     * свободное время — по индексу в памяти. Сортировка по ближайшему свободному слоту.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<AvailableSpecialistDto> searchAvailability(
+            Long specializationId,
+            Integer maxPrice,
+            LocalDate from,
+            LocalDate to,
+            LocalTime timeFrom,
+            LocalTime timeTo,
+            int limit
+    ) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate start = from != null ? from : now.toLocalDate();
+        LocalDate end = to != null ? to : now.toLocalDate().plusDays(AvailabilityIndex.HORIZON_DAYS - 1);
+        if (end.isBefore(start)) {
+            throw new RuntimeException("Invalid date range");
+        }
+
+        record Candidate(Specialist specialist, AvailabilityIndex.Match match) {}
+
+        return specialistRepository.findAllBySpecialization(specializationId).stream()
+                .filter(s -> maxPrice == null || s.getPricePerHour() == null || s.getPricePerHour() <= maxPrice)
+                .map(s -> new Candidate(s, availabilityIndex.findEarliest(s.getId(), start, end, timeFrom, timeTo, now)))
+                .filter(c -> c.match() != null)
+                .sorted(Comparator
+                        .comparing((Candidate c) -> c.match().date())
+                        .thenComparing(c -> c.match().times().get(0)))
+                .limit(Math.max(1, Math.min(limit, 100)))
+                .map(c -> AvailableSpecialistDto.builder()
+                        .specialist(mapper.convertToSpecialistCardDto(c.specialist()))
+                        .date(c.match().date())
+                        .times(c.match().times())
+                        .build())
+                .toList();
+    }
+
+    // Без чтения и блокировки: победителя определяет число изменённых строк
+    private SpecialistSlot claimExistingSlot(Long slotId, Parent parent) {
+        if (slotRepository.claimSlot(slotId, parent, LocalDateTime.now()) == 0) {
+            if (!slotRepository.existsById(slotId)) {
+                throw new RuntimeException("Slot not found: " + slotId);
+            }
+            throw new RuntimeException("Slot is already booked or held");
+        }
+        return slotRepository.findWithSpecialistById(slotId)
+                .orElseThrow(() -> new RuntimeException("Slot not found: " + slotId));
+    }
+
+    // Слот из правила: сначала материализуем строку (insert-or-ignore), затем тот же условный UPDATE
+    private SpecialistSlot claimScheduledSlot(BookSlotRequest request, Parent parent) {
+        Long specialistId = request.getSpecialistId();
+        LocalDate date = request.getDate();
+        LocalTime time = request.getTime();
+        if (specialistId == null || date == null || time == null) {
+            throw new RuntimeException("Either slotId or specialistId, date and time are required");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        requireBookable(date, time, now);
+
+        if (holdRegistry.isHeldByOther(new SlotHoldRegistry.SlotKey(specialistId, date, time), parent.getId())) {
+            throw new RuntimeException("Slot is held by another user");
+        }
+
+        // Удержанный своим же родителем слот уже есть в таблице — подтверждение без пересчёта расписания
+        if (slotRepository.claimSlotAt(specialistId, date, time, parent, now) == 0) {
+            if (!availabilityCalculator.isOffered(specialistId, date, time)) {
+                throw new RuntimeException("Slot is not available");
+            }
+            slotRepository.insertSlotIfAbsent(specialistId, date, time);
+            if (slotRepository.claimSlotAt(specialistId, date, time, parent, now) == 0) {
+                throw new RuntimeException("Slot is already booked or held");
+            }
+        }
+        return slotRepository.findWithSpecialistAt(specialistId, date, time)
+                .orElseThrow(() -> new RuntimeException("Slot not found"));
+    }
+
+    private SpecialistSlot holdExistingSlot(Long slotId, Parent parent, LocalDateTime now, LocalDateTime until) {
+        if (slotRepository.holdSlot(slotId, parent, now, until) == 0) {
+            if (!slotRepository.existsById(slotId)) {
+                throw new RuntimeException("Slot not found: " + slotId);
+            }
+            throw new RuntimeException("Slot is already booked or held");
+        }
+        return slotRepository.findWithSpecialistById(slotId)
+                .orElseThrow(() -> new RuntimeException("Slot not found: " + slotId));
+    }
+
+    private SpecialistSlot holdScheduledSlot(BookSlotRequest request, Parent parent,
+                                             LocalDateTime now, LocalDateTime until) {
+        Long specialistId = request.getSpecialistId();
+        LocalDate date = request.getDate();
+        LocalTime time = request.getTime();
+        if (specialistId == null || date == null || time == null) {
+            throw new RuntimeException("Either slotId or specialistId, date and time are required");
+        }
+        requireBookable(date, time, now);
+
+        // Проигравшие в наплыве отсекаются по памяти, без обращения к БД
+        if (holdRegistry.isHeldByOther(new SlotHoldRegistry.SlotKey(specialistId, date, time), parent.getId())) {
+            throw new RuntimeException("Slot is held by another user");
+        }
+
+        if (slotRepository.holdSlotAt(specialistId, date, time, parent, now, until) == 0) {
+            if (!availabilityCalculator.isOffered(specialistId, date, time)) {
+                throw new RuntimeException("Slot is not available");
+            }
+            slotRepository.insertSlotIfAbsent(specialistId, date, time);
+            if (slotRepository.holdSlotAt(specialistId, date, time, parent, now, until) == 0) {
+                throw new RuntimeException("Slot is already booked or held");
+            }
+        }
+        return slotRepository.findWithSpecialistAt(specialistId, date, time)
+                .orElseThrow(() -> new RuntimeException("Slot not found"));
+    }
+
+    // Правило расписания порождает слоты и в прошлом, и на годы вперёд — isOffered их не отсекает
+    private void requireBookable(LocalDate date, LocalTime time, LocalDateTime now) {
+        if (!LocalDateTime.of(date, time).isAfter(now)) {
+            throw new RuntimeException("Slot is in the past");
+        }
+        if (date.isAfter(now.toLocalDate().plusDays(BOOKING_HORIZON_DAYS))) {
+            throw new RuntimeException("Slots can be booked at most " + BOOKING_HORIZON_DAYS + " days ahead");
+        }
+    }
+
+    private void validateWindow(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        if (from.plusDays(MAX_WINDOW_DAYS).isBefore(to)) {
+            throw new RuntimeException("Date range must not exceed " + MAX_WINDOW_DAYS + " days");
+        }
+    }
+
     private Specialist getSpecialist(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found: " + email));
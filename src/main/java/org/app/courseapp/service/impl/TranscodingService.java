@@ -0,0 +1,599 @@
+package org.app.courseapp.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.config.TranscodingProperties;
+import org.app.courseapp.config.minio.MinioBucket;
+import org.app.courseapp.model.Video;
+import org.app.courseapp.model.VideoStatus;
+import org.app.courseapp.repository.VideoRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Очередь перекодирования видео.
+ * Задачи хранятся в таблице videos (status = PENDING), поэтому переживают рестарт:
+ * планировщик забирает их условным UPDATE и отдаёт в ограниченный пул воркеров.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TranscodingService {
+
+    private final VideoRepository videoRepository;
+    private final MinioService minioService;
+    private final TranscodingProperties properties;
+
+    public static final String HLS_MASTER_PLAYLIST = "master.m3u8";
+    public static final String HLS_PLAYLIST_CONTENT_TYPE = "application/vnd.apple.mpegurl";
+    private static final int HLS_SEGMENT_SECONDS = 6;
+    // moov с индексом кадров лежит в начале файла; его и читаем для ffprobe, а не весь ролик
+    private static final long MAX_MOOV_END_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_TOP_LEVEL_BOXES = 32;
+    private static final List<HlsRendition> HLS_LADDER = List.of(
+            new HlsRendition("240p", 240, "400k", "800k"),
+            new HlsRendition("480p", 480, "1000k", "2000k"),
+            new HlsRendition("720p", 720, "2500k", "5000k")
+    );
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ExecutorService workers;
+    private ScheduledExecutorService heartbeats;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(properties.getWorkers(), r -> {
+            Thread t = new Thread(r, "transcoder-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "transcoder-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Незавершённые задачи останутся в PROCESSING и вернутся в очередь через staleAfterMinutes
+        workers.shutdownNow();
+        heartbeats.shutdownNow();
+    }
+
+    // ─── Dispatcher ───────────────────────────────────────────────────────────
+
+    @Scheduled(fixedDelayString = "${transcoding.poll-interval-ms:3000}")
+    public void dispatch() {
+        int free = properties.getWorkers() - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+
+        List<Long> pending = videoRepository.findIdsByStatus(VideoStatus.PENDING, PageRequest.of(0, free));
+        for (Long videoId : pending) {
+            // Другой узел мог забрать задачу раньше — тогда claim вернёт 0
+            if (videoRepository.claimForProcessing(videoId, LocalDateTime.now()) == 0) {
+                continue;
+            }
+            inFlight.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    process(videoId);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void requeueStaleJobs() {
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(properties.getStaleAfterMinutes());
+        int maxAttempts = properties.getMaxAttempts();
+        int failed = videoRepository.failStaleJobs(staleBefore, maxAttempts,
+                "Worker stopped responding " + maxAttempts + " times");
+        if (failed > 0) {
+            log.error("Marked {} stale transcoding jobs as FAILED after {} attempts", failed, maxAttempts);
+        }
+        int requeued = videoRepository.requeueStaleJobs(staleBefore, maxAttempts);
+        if (requeued > 0) {
+            log.warn("Requeued {} stale transcoding jobs", requeued);
+        }
+    }
+
+    // ─── Worker ───────────────────────────────────────────────────────────────
+
+    private void process(Long videoId) {
+        Video video = videoRepository.findById(videoId).orElse(null);
+        if (video == null) {
+            return;
+        }
+        Claim claim = new Claim(videoId, video.getProcessingAttempts());
+
+        // Скачивание и ffprobe прогресса не дают — пульс идёт по таймеру, а не от ffmpeg
+        long interval = properties.getHeartbeatIntervalSeconds();
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(
+                () -> touchHeartbeat(claim), interval, interval, TimeUnit.SECONDS);
+
+        Path source = null;
+        Path compressed = null;
+        Path hlsDir = null;
+        boolean mp4Uploaded = false;
+        String hlsPrefix = null;
+        try {
+            source = Files.createTempFile("upload_", ".src");
+            minioService.downloadToFile(MinioBucket.VIDEO, video.getSourceObjectKey(), source);
+            claim.check();
+
+            MediaInfo media = probe(source);
+
+            // 0–50% — MP4 для /stream и скачивания, 50–99% — HLS-лесенка
+            compressed = Files.createTempFile("compressed_", ".mp4");
+            runFfmpeg(compressArgs(source, compressed), media.durationSeconds(),
+                    progress -> reportProgress(claim, progress / 2), claim::isLost);
+            claim.check();
+            mp4Uploaded = true;
+            minioService.uploadFromFile(MinioBucket.VIDEO, video.getObjectKey(), compressed, "video/mp4");
+
+            hlsDir = Files.createTempDirectory("hls_");
+            runFfmpeg(hlsArgs(source, hlsDir, media), media.durationSeconds(),
+                    progress -> reportProgress(claim, 50 + progress / 2), claim::isLost);
+            claim.check();
+            String hlsRoot = minioService.generateHlsPrefix(video.getObjectKey());
+            // Каждая попытка пишет в свою папку: отставший воркер, убирая за собой, не задевает чужие сегменты.
+            // Папки прежних попыток — недописанные остатки, опубликованной из них быть не может
+            for (int previous = 1; previous < claim.attempt(); previous++) {
+                minioService.deleteFolder(MinioBucket.VIDEO, hlsAttemptPrefix(hlsRoot, previous));
+            }
+            hlsPrefix = hlsAttemptPrefix(hlsRoot, claim.attempt());
+            uploadHlsDirectory(hlsDir, hlsPrefix);
+
+            if (videoRepository.markReady(videoId, claim.attempt(), media.durationSeconds(), Files.size(compressed),
+                    "video/mp4", hlsPrefix + HLS_MASTER_PLAYLIST) == 0) {
+                claim.lose();
+                claim.check();
+            }
+            minioService.deleteFile(MinioBucket.VIDEO, video.getSourceObjectKey());
+
+            log.info("Video {} transcoded: {} MB → {} MB, HLS at {}", videoId,
+                    Files.size(source) / 1_048_576, Files.size(compressed) / 1_048_576, hlsPrefix);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (claim.isLost()) {
+                log.warn("Transcoding of video {} (attempt {}) stopped: {}", videoId, claim.attempt(), e.getMessage());
+            } else {
+                int attempts = claim.attempt();
+                VideoStatus next = attempts < properties.getMaxAttempts() ? VideoStatus.PENDING : VideoStatus.FAILED;
+                if (videoRepository.markProcessingFailed(videoId, claim.attempt(), next, truncate(e.getMessage())) == 0) {
+                    claim.lose();
+                    log.warn("Transcoding of video {} (attempt {}) failed after losing the job", videoId, attempts, e);
+                } else {
+                    log.error("Transcoding of video {} failed (attempt {}), status → {}", videoId, attempts, next, e);
+                }
+            }
+        } finally {
+            heartbeat.cancel(false);
+            if (claim.isLost()) {
+                discardOutputs(video, mp4Uploaded, hlsPrefix);
+            }
+            deleteTempFile(source);
+            deleteTempFile(compressed);
+            deleteTempDirectory(hlsDir);
+        }
+    }
+
+    /**
+     * Убирает то, что успел залить воркер, потерявший задачу. Папка HLS своей попытки удаляется всегда.
+     * MP4 лежит по общему objectKey: если задачу забрал другой воркер, там его (такой же) результат,
+     * поэтому файл удаляется только вместе с самим видео.
+     */
+    private void discardOutputs(Video video, boolean mp4Uploaded, String hlsPrefix) {
+        try {
+            if (hlsPrefix != null) {
+                minioService.deleteFolder(MinioBucket.VIDEO, hlsPrefix);
+            }
+            if (mp4Uploaded && !videoRepository.existsById(video.getId())) {
+                minioService.deleteFile(MinioBucket.VIDEO, video.getObjectKey());
+                minioService.deleteFolder(MinioBucket.VIDEO, minioService.generateHlsPrefix(video.getObjectKey()));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to clean up outputs of abandoned transcoding of video {}: {}",
+                    video.getId(), e.getMessage());
+        }
+    }
+
+    private static String hlsAttemptPrefix(String hlsRoot, int attempt) {
+        return hlsRoot + "attempt-" + attempt + "/";
+    }
+
+    private void touchHeartbeat(Claim claim) {
+        try {
+            if (videoRepository.touchProcessingHeartbeat(claim.videoId(), claim.attempt(), LocalDateTime.now()) == 0) {
+                claim.lose();
+            }
+        } catch (Exception e) {
+            // Исключение отменило бы периодическую задачу — пропускаем тик, следующий повторит
+            log.warn("Failed to update transcoding heartbeat of video {}: {}", claim.videoId(), e.getMessage());
+        }
+    }
+
+    private void reportProgress(Claim claim, int percent) {
+        if (videoRepository.updateProcessingProgress(claim.videoId(), claim.attempt(), percent,
+                LocalDateTime.now()) == 0) {
+            claim.lose();
+        }
+    }
+
+    // ─── Готовый MP4 ──────────────────────────────────────────────────────────
+
+    /**
+     * Проверка файла, который кладётся без перекодирования: moov перед mdat (faststart —
+     * плеер начинает играть, не дочитав файл), видео H.264, звук AAC или его нет.
+     * Content-Type клиента ничего не гарантирует, поэтому смотрим сами байты.
+     * @throws RuntimeException с причиной, если файл так отдавать нельзя
+     */
+    public void verifyWebReady(String objectKey, long size) {
+        Path head = null;
+        try {
+            long moovEnd = findMoovEnd(objectKey, size);
+            head = Files.createTempFile("probe_", ".mp4");
+            try (OutputStream out = Files.newOutputStream(head)) {
+                minioService.copyRange(MinioBucket.VIDEO, objectKey, 0, moovEnd, out);
+            }
+            checkCodecs(head);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to inspect video: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while inspecting video", e);
+        } finally {
+            deleteTempFile(head);
+        }
+    }
+
+    // Обход верхнеуровневых боксов по заголовкам (по 16 байт) до первого moov или mdat
+    private long findMoovEnd(String objectKey, long size) throws IOException {
+        long offset = 0;
+        for (int i = 0; i < MAX_TOP_LEVEL_BOXES && offset + 8 <= size; i++) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream(16);
+            minioService.copyRange(MinioBucket.VIDEO, objectKey, offset, Math.min(16, size - offset), header);
+            ByteBuffer box = ByteBuffer.wrap(header.toByteArray());
+            long boxSize = Integer.toUnsignedLong(box.getInt(0));
+            String type = new String(header.toByteArray(), 4, 4, StandardCharsets.US_ASCII);
+            if (boxSize == 1 && box.limit() >= 16) {
+                boxSize = box.getLong(8);
+            } else if (boxSize == 0) {
+                boxSize = size - offset;
+            }
+            if (boxSize < 8) {
+                throw new RuntimeException("Not an MP4 file");
+            }
+
+            if ("moov".equals(type)) {
+                if (offset + boxSize > MAX_MOOV_END_BYTES) {
+                    throw new RuntimeException("MP4 header is too large");
+                }
+                return offset + boxSize;
+            }
+            if ("mdat".equals(type)) {
+                throw new RuntimeException("MP4 is not faststart (moov after mdat), upload with transcode=true");
+            }
+            offset += boxSize;
+        }
+        throw new RuntimeException("Not an MP4 file: moov atom not found");
+    }
+
+    private void checkCodecs(Path head) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(
+                properties.getFfprobePath(),
+                "-v", "error",
+                "-show_entries", "stream=codec_name,codec_type",
+                "-of", "default=noprint_wrappers=1",
+                head.toString()
+        ).redirectErrorStream(true).start();
+
+        List<String> video = new ArrayList<>();
+        List<String> audio = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String codec = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("codec_name=")) {
+                    codec = line.substring("codec_name=".length()).trim();
+                } else if (line.equals("codec_type=video")) {
+                    video.add(codec);
+                } else if (line.equals("codec_type=audio")) {
+                    audio.add(codec);
+                }
+            }
+        }
+        // Без mdat ffprobe может ругаться на обрезанный файл — решают найденные в moov дорожки
+        process.waitFor();
+
+        if (video.isEmpty() || !video.stream().allMatch("h264"::equals)) {
+            throw new RuntimeException("Video must be H.264 to skip transcoding, found " + video);
+        }
+        if (!audio.stream().allMatch("aac"::equals)) {
+            throw new RuntimeException("Audio must be AAC to skip transcoding, found " + audio);
+        }
+    }
+
+    // ─── ffmpeg ───────────────────────────────────────────────────────────────
+
+    private List<String> compressArgs(Path input, Path output) {
+        return List.of(
+                "-i", input.toString(),
+                "-vcodec", "libx264",
+                "-crf", "23",
+                "-preset", properties.getPreset(),
+                "-acodec", "aac",
+                "-b:a", "128k",
+                "-movflags", "+faststart",
+                "-y",
+                output.toString()
+        );
+    }
+
+    /**
+     * Одним проходом режем исходник на несколько качеств и пишем сегменты + плейлисты.
+     * Ступени выше исходного разрешения пропускаем, чтобы не апскейлить.
+     */
+    private List<String> hlsArgs(Path input, Path outputDir, MediaInfo media) {
+        List<HlsRendition> ladder = HLS_LADDER.stream()
+                .filter(r -> media.height() == null || r.height() <= media.height())
+                .toList();
+        if (ladder.isEmpty()) {
+            ladder = List.of(HLS_LADDER.get(0));
+        }
+
+        StringBuilder filter = new StringBuilder("[0:v]split=" + ladder.size());
+        for (int i = 0; i < ladder.size(); i++) {
+            filter.append("[v").append(i).append(']');
+        }
+        for (int i = 0; i < ladder.size(); i++) {
+            filter.append(";[v").append(i).append("]scale=-2:").append(ladder.get(i).height())
+                    .append("[v").append(i).append("out]");
+        }
+
+        List<String> args = new ArrayList<>(List.of("-i", input.toString(), "-filter_complex", filter.toString()));
+        List<String> streamMap = new ArrayList<>();
+        for (int i = 0; i < ladder.size(); i++) {
+            HlsRendition rendition = ladder.get(i);
+            args.addAll(List.of("-map", "[v" + i + "out]"));
+            args.addAll(List.of("-b:v:" + i, rendition.videoBitrate(),
+                    "-maxrate:v:" + i, rendition.videoBitrate(),
+                    "-bufsize:v:" + i, rendition.bufferSize()));
+            if (media.hasAudio()) {
+                args.addAll(List.of("-map", "0:a:0"));
+                streamMap.add("v:" + i + ",a:" + i + ",name:" + rendition.name());
+            } else {
+                streamMap.add("v:" + i + ",name:" + rendition.name());
+            }
+        }
+
+        args.addAll(List.of(
+                "-c:v", "libx264",
+                "-preset", properties.getPreset(),
+                // Ключевой кадр на границе каждого сегмента — иначе переключение качества будет с артефактами
+                "-force_key_frames", "expr:gte(t,n_forced*" + HLS_SEGMENT_SECONDS + ")",
+                "-sc_threshold", "0",
+                "-c:a", "aac",
+                "-b:a", "96k",
+                "-f", "hls",
+                "-hls_time", String.valueOf(HLS_SEGMENT_SECONDS),
+                "-hls_playlist_type", "vod",
+                "-hls_segment_filename", outputDir.resolve("%v_%03d.ts").toString(),
+                "-master_pl_name", HLS_MASTER_PLAYLIST,
+                "-var_stream_map", String.join(" ", streamMap),
+                "-y",
+                outputDir.resolve("%v.m3u8").toString()
+        ));
+        return args;
+    }
+
+    private void runFfmpeg(List<String> args, Long durationSeconds, IntConsumer onProgress,
+                           BooleanSupplier cancelled) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                properties.getFfmpegPath(),
+                "-v", "error",
+                "-nostats",
+                "-progress", "pipe:1"
+        ));
+        command.addAll(args);
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+
+        Process process = pb.start();
+        String lastError = null;
+        int reported = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (cancelled.getAsBoolean()) {
+                    process.destroyForcibly();
+                    throw new RuntimeException("Transcoding cancelled: job was taken over or deleted");
+                }
+                // -progress пишет пары key=value; out_time_us — сколько уже закодировано
+                if (line.startsWith("out_time_us=") && durationSeconds != null && durationSeconds > 0) {
+                    int percent = parseProgressPercent(line.substring("out_time_us=".length()), durationSeconds);
+                    // Пишем в БД не чаще чем раз в 5%
+                    if (percent >= reported + 5) {
+                        reported = percent;
+                        onProgress.accept(percent);
+                    }
+                } else if (!line.contains("=")) {
+                    lastError = line;
+                    log.debug("FFmpeg: {}", line);
+                }
+            }
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new RuntimeException("FFmpeg failed with exit code " + exitCode
+                    + (lastError != null ? ": " + lastError : ""));
+        }
+    }
+
+    private MediaInfo probe(Path input) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(
+                properties.getFfprobePath(),
+                "-v", "error",
+                "-show_entries", "format=duration:stream=codec_type,height",
+                "-of", "default=noprint_wrappers=1",
+                input.toString()
+        ).redirectErrorStream(true).start();
+
+        Long duration = null;
+        Integer height = null;
+        boolean hasAudio = false;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("duration=")) {
+                    duration = parseSeconds(line.substring("duration=".length()));
+                } else if (line.startsWith("height=") && height == null) {
+                    height = parseInt(line.substring("height=".length()));
+                } else if (line.equals("codec_type=audio")) {
+                    hasAudio = true;
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            // Без данных о дорожках аудио не маппим: -map 0:a:0 на файле без звука роняет ffmpeg
+            log.warn("ffprobe failed for {}, transcoding without audio", input);
+            return new MediaInfo(null, null, false);
+        }
+        return new MediaInfo(duration, height, hasAudio);
+    }
+
+    private void uploadHlsDirectory(Path dir, String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                String contentType = name.endsWith(".m3u8") ? HLS_PLAYLIST_CONTENT_TYPE : "video/mp2t";
+                minioService.uploadFromFile(MinioBucket.VIDEO, prefix + name, file, contentType);
+            }
+        }
+    }
+
+    private int parseProgressPercent(String outTimeUs, long durationSeconds) {
+        try {
+            long us = Long.parseLong(outTimeUs.trim());
+            return (int) Math.min(99, Math.max(0, us / 10_000 / durationSeconds));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Long parseSeconds(String value) {
+        try {
+            return Math.round(Double.parseDouble(value.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Integer parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String truncate(String message) {
+        if (message == null) return null;
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    private void deleteTempFile(Path path) {
+        try {
+            if (path != null) Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete temp file: {}", path, e);
+        }
+    }
+
+    private void deleteTempDirectory(Path dir) {
+        if (dir == null) return;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(this::deleteTempFile);
+        } catch (IOException e) {
+            log.warn("Failed to clean temp dir: {}", dir, e);
+        }
+        deleteTempFile(dir);
+    }
+
+    /**
+     * Захват задачи воркером: id видео и номер попытки из claimForProcessing.
+     * lost выставляется, как только условная запись вернула 0 строк.
+     */
+    private static final class Claim {
+        private final Long videoId;
+        private final int attempt;
+        private volatile boolean lost;
+
+        Claim(Long videoId, int attempt) {
+            this.videoId = videoId;
+            this.attempt = attempt;
+        }
+
+        Long videoId() {
+            return videoId;
+        }
+
+        int attempt() {
+            return attempt;
+        }
+
+        boolean isLost() {
+            return lost;
+        }
+
+        void lose() {
+            lost = true;
+        }
+
+        void check() {
+            if (lost) {
+                throw new RuntimeException("Video " + videoId + " was taken over by another worker or deleted");
+            }
+        }
+    }
+
+    private record MediaInfo(Long durationSeconds, Integer height, boolean hasAudio) {}
+
+    private record HlsRendition(String name, int height, String videoBitrate, String bufferSize) {}
+}
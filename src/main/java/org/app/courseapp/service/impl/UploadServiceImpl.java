@@ -0,0 +1,332 @@
+package org.app.courseapp.service.impl;
+
+import io.minio.StatObjectResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.config.minio.MinioBucket;
+import org.app.courseapp.dto.request.CreateUploadRequest;
+import org.app.courseapp.dto.response.UploadSessionDto;
+import org.app.courseapp.model.UploadSession;
+import org.app.courseapp.model.UploadSessionStatus;
+import org.app.courseapp.model.users.User;
+import org.app.courseapp.repository.UploadSessionRepository;
+import org.app.courseapp.service.UploadService;
+import org.app.courseapp.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Докачиваемые загрузки: клиент создаёт сессию, шлёт нумерованные чанки (PUT),
+ * при обрыве спрашивает смещение и продолжает, в конце вызывает complete.
+ * Каждый чанк — отдельный объект в MinIO, complete склеивает их на стороне хранилища.
+ * Методы с загрузкой байтов намеренно без @Transactional — соединение с БД не держим.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadServiceImpl implements UploadService {
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final MinioService minioService;
+    private final UserService userService;
+
+    // S3 ограничивает одиночный PUT пятью гигабайтами
+    private static final long MAX_SINGLE_PUT_BYTES = 5L * 1024 * 1024 * 1024;
+    private static final int DIRECT_UPLOAD_URL_MINUTES = 60;
+
+    // Не меньше 5 МБ — минимальный размер части для S3 compose
+    @Value("${upload.chunk-size-bytes:8388608}")
+    private long chunkSize;
+
+    @Value("${upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Override
+    public UploadSessionDto createSession(CreateUploadRequest request) {
+        User currentUser = userService.getCurrentUser();
+
+        String id = UUID.randomUUID().toString();
+        String prefix = "uploads/" + id + "/";
+        UploadSession session = UploadSession.builder()
+                .id(id)
+                .user(currentUser)
+                .originalFilename(request.getFilename())
+                .contentType(request.getContentType())
+                .totalSize(request.getTotalSize())
+                .chunkSize(chunkSize)
+                .partsPrefix(prefix + "parts/")
+                .objectKey(minioService.sanitizeObjectKey(prefix + "source." + extensionOf(request.getFilename())))
+                .build();
+
+        if (session.getTotalParts() > 10_000) {
+            throw new RuntimeException("File is too large");
+        }
+
+        uploadSessionRepository.save(session);
+        log.info("User {} started upload {} ({} bytes, {} parts)",
+                currentUser.getEmail(), id, request.getTotalSize(), session.getTotalParts());
+        return toDto(session, Map.of());
+    }
+
+    /**
+     * Прямая загрузка: отдаём presigned PUT из publicMinioClient, байты идут мимо приложения.
+     * После PUT клиент вызывает complete — там проверяем объект через statObject.
+     */
+    @Override
+    public UploadSessionDto createDirectSession(CreateUploadRequest request) {
+        User currentUser = userService.getCurrentUser();
+
+        if (request.getTotalSize() > MAX_SINGLE_PUT_BYTES) {
+            throw new RuntimeException("File is too large for a direct upload, use chunked upload");
+        }
+
+        String id = UUID.randomUUID().toString();
+        String prefix = "uploads/" + id + "/";
+        UploadSession session = UploadSession.builder()
+                .id(id)
+                .user(currentUser)
+                .direct(true)
+                .originalFilename(request.getFilename())
+                .contentType(request.getContentType())
+                .totalSize(request.getTotalSize())
+                .chunkSize(request.getTotalSize())
+                .partsPrefix(prefix + "parts/")
+                .objectKey(minioService.sanitizeObjectKey(prefix + "source." + extensionOf(request.getFilename())))
+                .build();
+
+        uploadSessionRepository.save(session);
+        log.info("User {} started direct upload {} ({} bytes)", currentUser.getEmail(), id, request.getTotalSize());
+
+        UploadSessionDto dto = toDto(session, Map.of());
+        dto.setUploadUrl(minioService.getPresignedUploadUrl(
+                MinioBucket.VIDEO, session.getObjectKey(), DIRECT_UPLOAD_URL_MINUTES));
+        return dto;
+    }
+
+    @Override
+    public UploadSessionDto getSession(String uploadId) {
+        UploadSession session = findOwnSession(uploadId);
+        return toDto(session, listParts(session));
+    }
+
+    @Override
+    public UploadSessionDto uploadPart(String uploadId, int partNumber, long contentLength, InputStream body) {
+        UploadSession session = findOwnSession(uploadId);
+        if (session.getStatus() != UploadSessionStatus.ACTIVE) {
+            throw new RuntimeException("Upload is already completed");
+        }
+        if (Boolean.TRUE.equals(session.getDirect())) {
+            throw new RuntimeException("Direct uploads go straight to storage via uploadUrl");
+        }
+        if (partNumber < 1 || partNumber > session.getTotalParts()) {
+            throw new RuntimeException("Part number out of range: " + partNumber);
+        }
+        long expected = session.expectedPartSize(partNumber);
+        if (contentLength != expected) {
+            throw new RuntimeException("Part " + partNumber + " must be exactly " + expected + " bytes");
+        }
+
+        // Повторная отправка той же части просто перезаписывает объект
+        minioService.uploadFile(MinioBucket.VIDEO, session.partKey(partNumber), body,
+                "application/octet-stream", contentLength);
+
+        LocalDateTime now = LocalDateTime.now();
+        if (uploadSessionRepository.touchActive(uploadId, now) == 0) {
+            throw new RuntimeException("Upload is already completed");
+        }
+        session.setUpdatedAt(now);
+
+        return toDto(session, listParts(session));
+    }
+
+    @Override
+    public UploadSessionDto completeSession(String uploadId) {
+        UploadSession session = findOwnSession(uploadId);
+        if (session.getStatus() != UploadSessionStatus.ACTIVE) {
+            return toDto(session, Map.of());
+        }
+        if (Boolean.TRUE.equals(session.getDirect())) {
+            return completeDirectSession(session);
+        }
+
+        Map<Integer, Long> parts = listParts(session);
+        List<String> partKeys = new ArrayList<>();
+        for (int part = 1; part <= session.getTotalParts(); part++) {
+            Long size = parts.get(part);
+            if (size == null || size != session.expectedPartSize(part)) {
+                throw new RuntimeException("Part " + part + " is missing or incomplete");
+            }
+            partKeys.add(session.partKey(part));
+        }
+
+        try {
+            minioService.composeObject(MinioBucket.VIDEO, session.getObjectKey(), partKeys, session.getContentType());
+        } catch (RuntimeException e) {
+            // Параллельный complete успел склеить файл и удалить части
+            return finishedSession(session).orElseThrow(() -> e);
+        }
+        if (!completeOnce(session)) {
+            return finishedSession(session).orElseGet(() -> toDto(session, Map.of()));
+        }
+        // Части удаляет только тот, кто выполнил переход
+        minioService.deleteFolder(MinioBucket.VIDEO, session.getPartsPrefix());
+        log.info("Upload {} completed: {}", uploadId, session.getObjectKey());
+        return toDto(session, Map.of());
+    }
+
+    private UploadSessionDto completeDirectSession(UploadSession session) {
+        StatObjectResponse stat;
+        try {
+            stat = minioService.statObject(MinioBucket.VIDEO, session.getObjectKey());
+        } catch (RuntimeException e) {
+            throw new RuntimeException("File has not been uploaded yet");
+        }
+
+        if (stat.size() != session.getTotalSize()) {
+            throw new RuntimeException("Uploaded size " + stat.size() + " does not match declared " + session.getTotalSize());
+        }
+        if (session.getContentType() != null && !session.getContentType().equals(stat.contentType())) {
+            throw new RuntimeException("Uploaded content type " + stat.contentType()
+                    + " does not match declared " + session.getContentType());
+        }
+
+        if (!completeOnce(session)) {
+            return finishedSession(session).orElseGet(() -> toDto(session, Map.of()));
+        }
+        log.info("Direct upload {} verified: {}", session.getId(), session.getObjectKey());
+        return toDto(session, Map.of());
+    }
+
+    private boolean completeOnce(UploadSession session) {
+        LocalDateTime now = LocalDateTime.now();
+        if (uploadSessionRepository.markCompleted(session.getId(), now) == 0) {
+            return false;
+        }
+        session.setStatus(UploadSessionStatus.COMPLETED);
+        session.setUpdatedAt(now);
+        return true;
+    }
+
+    // Состояние сессии, которую завершил другой запрос; пусто — сессия всё ещё активна
+    private Optional<UploadSessionDto> finishedSession(UploadSession session) {
+        return uploadSessionRepository.findStatusById(session.getId())
+                .filter(status -> status != UploadSessionStatus.ACTIVE)
+                .map(status -> {
+                    session.setStatus(status);
+                    return toDto(session, Map.of());
+                });
+    }
+
+    @Override
+    public void abortSession(String uploadId) {
+        UploadSession session = findOwnSession(uploadId);
+        if (session.getStatus() == UploadSessionStatus.CONSUMED) {
+            throw new RuntimeException("Upload is already attached to a video");
+        }
+        deleteSessionObjects(session);
+        uploadSessionRepository.delete(session);
+    }
+
+    /**
+     * Забирает завершённую загрузку под видео. Условный UPDATE не даёт привязать
+     * один и тот же файл дважды; вызывается внутри транзакции создания Video.
+     */
+    @Override
+    public UploadSession consumeCompletedUpload(String uploadId, Long userId) {
+        if (uploadSessionRepository.markConsumed(uploadId, userId) == 0) {
+            throw new RuntimeException("Upload " + uploadId + " is not completed or already used");
+        }
+        return uploadSessionRepository.findById(uploadId)
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+    }
+
+    // Брошенные сессии и загруженные, но так и не привязанные к видео файлы
+    @Scheduled(cron = "0 15 * * * *")
+    public void cleanupAbandonedSessions() {
+        LocalDateTime before = LocalDateTime.now().minusHours(sessionTtlHours);
+        List<UploadSession> stale = uploadSessionRepository.findByUpdatedAtBefore(before);
+        for (UploadSession session : stale) {
+            try {
+                // Файл CONSUMED-сессии уже принадлежит видео — удаляем только запись
+                if (session.getStatus() != UploadSessionStatus.CONSUMED) {
+                    deleteSessionObjects(session);
+                }
+                uploadSessionRepository.delete(session);
+            } catch (Exception e) {
+                log.warn("Failed to clean up upload {}", session.getId(), e);
+            }
+        }
+        if (!stale.isEmpty()) {
+            log.info("Cleaned up {} stale upload sessions", stale.size());
+        }
+    }
+
+    private void deleteSessionObjects(UploadSession session) {
+        minioService.deleteFolder(MinioBucket.VIDEO, session.getPartsPrefix());
+        minioService.deleteFile(MinioBucket.VIDEO, session.getObjectKey());
+    }
+
+    private UploadSession findOwnSession(String uploadId) {
+        User currentUser = userService.getCurrentUser();
+        return uploadSessionRepository.findByIdAndUserId(uploadId, currentUser.getId())
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+    }
+
+    private Map<Integer, Long> listParts(UploadSession session) {
+        Map<Integer, Long> parts = new TreeMap<>();
+        minioService.listObjectSizes(MinioBucket.VIDEO, session.getPartsPrefix()).forEach((key, size) -> {
+            try {
+                parts.put(Integer.parseInt(key.substring(session.getPartsPrefix().length())), size);
+            } catch (NumberFormatException ignored) {
+            }
+        });
+        return parts;
+    }
+
+    private UploadSessionDto toDto(UploadSession session, Map<Integer, Long> parts) {
+        long received = 0;
+        int next = 1;
+        if (session.getStatus() != UploadSessionStatus.ACTIVE) {
+            received = session.getTotalSize();
+            next = session.getTotalParts() + 1;
+        } else {
+            // Смещение — только непрерывный префикс полностью загруженных частей
+            while (next <= session.getTotalParts()
+                    && parts.containsKey(next)
+                    && parts.get(next) == session.expectedPartSize(next)) {
+                received += parts.get(next);
+                next++;
+            }
+        }
+
+        return UploadSessionDto.builder()
+                .uploadId(session.getId())
+                .status(session.getStatus())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .totalParts(session.getTotalParts())
+                .receivedBytes(received)
+                .nextPartNumber(next)
+                .receivedParts(new ArrayList<>(parts.keySet()))
+                .expiresAt(session.getUpdatedAt() != null
+                        ? session.getUpdatedAt().plusHours(sessionTtlHours)
+                        : null)
+                .build();
+    }
+
+    private String extensionOf(String filename) {
+        if (filename == null) return "bin";
+        int dotIndex = filename.lastIndexOf('.');
+        return dotIndex > 0 ? filename.substring(dotIndex + 1) : "bin";
+    }
+}
@@ -14,9 +14,10 @@ import org.app.courseapp.model.Specialization;
 import org.app.courseapp.model.UserRole;
 import org.app.courseapp.model.users.*;
 import org.app.courseapp.repository.*;
+import org.app.courseapp.security.CurrentUserHolder;
+import org.app.courseapp.security.PrincipalCache;
 import org.app.courseapp.service.UserService;
 import org.app.courseapp.util.Mapper;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +28,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -41,14 +43,25 @@ public class UserServiceImpl implements UserService {
     private final Mapper mapper;
     private final PasswordEncoder passwordEncoder;
     private final MinioService minioService;
+    private final CurrentUserHolder currentUserHolder;
+    private final PrincipalCache principalCache;
 
     @Override
     public User getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByEmail(email)
+        return currentUserHolder.getCurrentUser()
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
+    @Override
+    public Optional<User> getCurrentUserOptional() {
+        return currentUserHolder.getCurrentUser();
+    }
+
+    @Override
+    public Optional<Long> getCurrentUserId() {
+        return currentUserHolder.getCurrentUserId();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public BaseUserProfileDto getMyProfile() {
@@ -101,6 +114,7 @@ public class UserServiceImpl implements UserService {
         currentUser.setDeleted(true);
         currentUser.setDeletedAt(LocalDateTime.now());
         userRepository.save(currentUser);
+        principalCache.invalidate(currentUser.getEmail());
         log.info("User account deleted: {}", currentUser.getId());
     }
 
@@ -170,6 +184,7 @@ public class UserServiceImpl implements UserService {
 
         currentUser.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(currentUser);
+        principalCache.invalidate(currentUser.getEmail());
         log.info("User {} changed password", currentUser.getEmail());
     }
 }
\ No newline at end of file
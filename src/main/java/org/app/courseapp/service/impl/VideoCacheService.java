@@ -0,0 +1,336 @@
+package org.app.courseapp.service.impl;
+
+import io.minio.StatObjectResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.app.courseapp.config.VideoCacheProperties;
+import org.app.courseapp.config.minio.MinioBucket;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальный дисковый LRU-кэш целых видеообъектов перед MinIO.
+ * Промах отдаётся напрямую из MinIO, а объект в фоне один раз докачивается на диск;
+ * последующие Range-запросы читаются из файла через FileChannel.transferTo.
+ * Объекты в бакете видео не перезаписываются (ключи содержат timestamp),
+ * поэтому ETag фиксируется при докачке и на попадании statObject не нужен.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class VideoCacheService {
+
+    // Кэш удаляет в каталоге только свои файлы — каталог может быть общим
+    private static final String FILE_PREFIX = "vc-";
+
+    private final MinioService minioService;
+    private final VideoCacheProperties properties;
+
+    // accessOrder = true: итерация начинается с давно не читанных — их и вытесняем
+    private final LinkedHashMap<String, CachedObject> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    // Файлы, которые сейчас читаются: вытесненный файл удаляется только после последнего чтения.
+    // Обе коллекции меняются под монитором entries
+    private final Map<Path, Integer> pins = new HashMap<>();
+    private final Set<Path> doomed = new HashSet<>();
+
+    // Single-flight: пока объект докачивается, повторные промахи новую загрузку не запускают
+    private final Map<String, Boolean> inflight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fills = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private Path directory;
+    private ThreadPoolExecutor fillers;
+
+    public record CachedObject(Path file, long size, String etag) {}
+
+    public record CacheStats(
+            long hits,
+            long misses,
+            long fills,
+            long evictions,
+            int entries,
+            long sizeBytes,
+            long maxSizeBytes
+    ) {}
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+
+        // Индекс живёт только в памяти — файлы от прошлого запуска не учтены в бюджете, удаляем их
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*")) {
+            files.forEach(this::deleteQuietly);
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        fillers = new ThreadPoolExecutor(
+                properties.getFillWorkers(), properties.getFillWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(64),
+                r -> {
+                    Thread t = new Thread(r, "video-cache-fill-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fillers != null) {
+            fillers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return закэшированный объект (для размера) или null; при промахе запускается фоновая докачка.
+     * Сам файл читается через {@link #transferTo}: к тому моменту его уже могли вытеснить
+     */
+    public CachedObject lookup(MinioBucket bucket, String objectKey) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        String key = cacheKey(bucket, objectKey);
+
+        CachedObject cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        scheduleFill(bucket, objectKey, key);
+        return null;
+    }
+
+    /**
+     * Отдаёт диапазон закэшированного объекта в поток ответа. Файл закрепляется на время чтения,
+     * вытеснение в это время его не удаляет. Поток сервлета не SocketChannel, поэтому до sendfile
+     * дело не доходит, но transferTo читает из page cache без аллокации буфера на каждый запрос.
+     * @return false — объекта в кэше уже нет, вызывающий отдаёт диапазон из MinIO
+     */
+    public boolean transferTo(MinioBucket bucket, String objectKey, long offset, long length,
+                              OutputStream out) throws IOException {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        CachedObject cached;
+        synchronized (entries) {
+            cached = entries.get(cacheKey(bucket, objectKey));
+            if (cached == null) {
+                return false;
+            }
+            pins.merge(cached.file(), 1, Integer::sum);
+        }
+
+        try (FileChannel channel = FileChannel.open(cached.file(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    throw new IOException("Unexpected end of cached file " + cached.file());
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            return true;
+        } finally {
+            unpin(cached.file());
+        }
+    }
+
+    public void evict(MinioBucket bucket, String objectKey) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<Path> deletable = new ArrayList<>();
+        synchronized (entries) {
+            CachedObject removed = entries.remove(cacheKey(bucket, objectKey));
+            if (removed != null) {
+                totalBytes -= removed.size();
+                retire(removed.file(), deletable);
+            }
+        }
+        deletable.forEach(this::deleteQuietly);
+    }
+
+    public CacheStats getStats() {
+        synchronized (entries) {
+            return new CacheStats(
+                    hits.get(), misses.get(), fills.get(), evictions.get(),
+                    entries.size(), totalBytes, properties.getMaxSizeBytes());
+        }
+    }
+
+    @Scheduled(fixedDelay = 300_000)
+    public void logStats() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        CacheStats stats = getStats();
+        long lookups = stats.hits() + stats.misses();
+        if (lookups == 0) {
+            return;
+        }
+        log.info("Video cache: {} hits, {} misses ({}% hit ratio), {} objects, {} MB",
+                stats.hits(), stats.misses(), stats.hits() * 100 / lookups,
+                stats.entries(), stats.sizeBytes() / (1024 * 1024));
+    }
+
+    // ─── Fill ─────────────────────────────────────────────────────────────────
+
+    private void scheduleFill(MinioBucket bucket, String objectKey, String key) {
+        if (inflight.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            fillers.execute(() -> {
+                try {
+                    fill(bucket, objectKey, key);
+                } finally {
+                    inflight.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Очередь докачек забита — этот промах просто пройдёт мимо кэша
+            inflight.remove(key);
+        }
+    }
+
+    private void fill(MinioBucket bucket, String objectKey, String key) {
+        Path temp = null;
+        try {
+            StatObjectResponse stat = minioService.statObject(bucket, objectKey);
+            if (stat.size() > properties.getMaxObjectBytes() || stat.size() > properties.getMaxSizeBytes()) {
+                return;
+            }
+
+            temp = directory.resolve(FILE_PREFIX + UUID.randomUUID() + ".part");
+            minioService.downloadToFile(bucket, objectKey, temp);
+
+            long size = Files.size(temp);
+            if (size != stat.size()) {
+                log.warn("Video cache fill for {} got {} bytes, expected {}", objectKey, size, stat.size());
+                return;
+            }
+
+            Path file = directory.resolve(FILE_PREFIX + UUID.randomUUID() + ".bin");
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+
+            admit(key, new CachedObject(file, size, stat.etag()));
+            fills.incrementAndGet();
+            log.debug("Cached video object {} ({} bytes)", objectKey, size);
+        } catch (Exception e) {
+            log.warn("Video cache fill failed for {}: {}", objectKey, e.getMessage());
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private void admit(String key, CachedObject cached) {
+        List<Path> deletable = new ArrayList<>();
+        synchronized (entries) {
+            CachedObject previous = entries.put(key, cached);
+            if (previous != null) {
+                totalBytes -= previous.size();
+                retire(previous.file(), deletable);
+            }
+            totalBytes += cached.size();
+
+            Iterator<Map.Entry<String, CachedObject>> it = entries.entrySet().iterator();
+            while (totalBytes > properties.getMaxSizeBytes() && it.hasNext()) {
+                Map.Entry<String, CachedObject> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                it.remove();
+                totalBytes -= eldest.getValue().size();
+                retire(eldest.getValue().file(), deletable);
+                evictions.incrementAndGet();
+            }
+        }
+        deletable.forEach(this::deleteQuietly);
+    }
+
+    // Вызывается под монитором entries: читаемый файл удалит последний читатель
+    private void retire(Path file, List<Path> deletable) {
+        if (pins.containsKey(file)) {
+            doomed.add(file);
+        } else {
+            deletable.add(file);
+        }
+    }
+
+    private void unpin(Path file) {
+        boolean delete;
+        synchronized (entries) {
+            Integer left = pins.merge(file, -1, Integer::sum);
+            if (left != null && left > 0) {
+                return;
+            }
+            pins.remove(file);
+            delete = doomed.remove(file);
+        }
+        if (delete) {
+            deleteQuietly(file);
+        }
+    }
+
+    private String cacheKey(MinioBucket bucket, String objectKey) {
+        return bucket.name() + "/" + objectKey;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached file {}: {}", path, e.getMessage());
+        }
+    }
+}
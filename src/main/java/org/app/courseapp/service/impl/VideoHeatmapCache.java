@@ -0,0 +1,66 @@
+package org.app.courseapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.app.courseapp.dto.response.VideoHeatmapDto;
+import org.app.courseapp.model.Video;
+import org.app.courseapp.repository.VideoProgressRepository;
+import org.app.courseapp.util.WatchBitmap;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Тепловая карта просмотров видео: сумма карт отрезков всех зрителей. Кураторам не нужна
+ * секундная точность — пересчёт не чаще раза в TTL на видео, между пересчётами отдаётся кэш.
+ */
+@Service
+@RequiredArgsConstructor
+public class VideoHeatmapCache {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final VideoProgressRepository videoProgressRepository;
+
+    private final Map<Long, VideoHeatmapDto> cache = new ConcurrentHashMap<>();
+
+    public VideoHeatmapDto get(Video video) {
+        VideoHeatmapDto cached = cache.get(video.getId());
+        int bucketCount = WatchBitmap.bucketCount(video.getDurationSeconds());
+        if (cached != null && cached.getCounts().length == bucketCount
+                && cached.getComputedAt().plus(TTL).isAfter(LocalDateTime.now())) {
+            return cached;
+        }
+        VideoHeatmapDto computed = compute(video.getId(), bucketCount);
+        cache.put(video.getId(), computed);
+        return computed;
+    }
+
+    public void evict(Long videoId) {
+        cache.remove(videoId);
+    }
+
+    private VideoHeatmapDto compute(Long videoId, int bucketCount) {
+        int[] counts = new int[bucketCount];
+        int viewers = 0;
+        List<String> bitmaps = videoProgressRepository.findWatchedBucketsByVideoId(videoId);
+        for (String bits : bitmaps) {
+            // Карты другой длины остались от прежней версии видео — в сумму не попадают
+            if (bits.length() != bucketCount) {
+                continue;
+            }
+            WatchBitmap.accumulate(counts, bits);
+            viewers++;
+        }
+        return VideoHeatmapDto.builder()
+                .videoId(videoId)
+                .bucketSeconds(WatchBitmap.BUCKET_SECONDS)
+                .viewers(viewers)
+                .counts(counts)
+                .computedAt(LocalDateTime.now())
+                .build();
+    }
+}
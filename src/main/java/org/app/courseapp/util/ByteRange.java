@@ -0,0 +1,109 @@
+package org.app.courseapp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Один диапазон из заголовка Range (RFC 7233): "bytes=a-b", "bytes=a-" и суффиксный "bytes=-n".
+ * Мультидиапазоны multipart-ом не отдаём — берём первый выполнимый, как делают браузеры и плееры.
+ */
+public record ByteRange(long start, long end) {
+
+    private static final String UNIT = "bytes=";
+    private static final Pattern RANGE_SPEC = Pattern.compile("\\s*(\\d*)\\s*-\\s*(\\d*)\\s*");
+    private static final long UNSET = -1;
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange(long fileSize) {
+        return "bytes " + start + "-" + end + "/" + fileSize;
+    }
+
+    /**
+     * Заголовок, который надо учитывать: единица bytes и синтаксически верные диапазоны.
+     * Остальное (другая единица, мусор, "bytes=5-3") по RFC 7233 игнорируется — отдаётся весь файл с 200.
+     */
+    public static boolean isApplicable(String header) {
+        return specs(header) != null;
+    }
+
+    /**
+     * @param maxLength верхняя граница ответа; открытый "bytes=a-" режется до неё,
+     *                  клиент сам дозапросит следующий кусок
+     * @return первый выполнимый диапазон или null, если выполнимых нет (→ 416).
+     * Для заголовков, не прошедших {@link #isApplicable}, тоже null — их надо отсеять раньше
+     */
+    public static ByteRange parse(String header, long fileSize, long maxLength) {
+        List<long[]> specs = specs(header);
+        if (specs == null || fileSize <= 0) {
+            return null;
+        }
+
+        for (long[] spec : specs) {
+            long first = spec[0];
+            long last = spec[1];
+            long start;
+            long end;
+
+            if (first == UNSET) {
+                // bytes=-500 — последние 500 байт; -0 невыполним
+                if (last == 0) {
+                    continue;
+                }
+                start = Math.max(0, fileSize - last);
+                end = fileSize - 1;
+            } else {
+                if (first >= fileSize) {
+                    continue;
+                }
+                start = first;
+                end = last == UNSET ? fileSize - 1 : Math.min(last, fileSize - 1);
+            }
+
+            if (end - start + 1 > maxLength) {
+                end = start + maxLength - 1;
+            }
+            return new ByteRange(start, end);
+        }
+        return null;
+    }
+
+    // Пары [first, last] (UNSET — не задано) или null, если заголовок игнорируется целиком
+    private static List<long[]> specs(String header) {
+        if (header == null || !header.regionMatches(true, 0, UNIT, 0, UNIT.length())) {
+            return null;
+        }
+
+        List<long[]> specs = new ArrayList<>();
+        for (String part : header.substring(UNIT.length()).split(",", -1)) {
+            // Пустые элементы списка допустимы: "bytes=0-1, ,5-"
+            if (part.isBlank()) {
+                continue;
+            }
+            Matcher matcher = RANGE_SPEC.matcher(part);
+            if (!matcher.matches()) {
+                return null;
+            }
+            long first = matcher.group(1).isEmpty() ? UNSET : parseSaturated(matcher.group(1));
+            long last = matcher.group(2).isEmpty() ? UNSET : parseSaturated(matcher.group(2));
+            if ((first == UNSET && last == UNSET) || (first != UNSET && last != UNSET && last < first)) {
+                return null;
+            }
+            specs.add(new long[]{first, last});
+        }
+        return specs.isEmpty() ? null : specs;
+    }
+
+    // Цифры уже проверены регулярным выражением — исключение возможно только от переполнения
+    private static long parseSaturated(String digits) {
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
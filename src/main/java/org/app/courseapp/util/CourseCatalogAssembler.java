@@ -0,0 +1,178 @@
+package org.app.courseapp.util;
+
+import lombok.RequiredArgsConstructor;
+import org.app.courseapp.dto.response.CourseDto;
+import org.app.courseapp.model.Course;
+import org.app.courseapp.model.CourseEnrollment;
+import org.app.courseapp.model.CourseRatingSummary;
+import org.app.courseapp.repository.CourseEnrollmentRepository;
+import org.app.courseapp.repository.CourseRepository;
+import org.app.courseapp.repository.CourseReviewRepository;
+import org.app.courseapp.service.CourseRatingSummaryService;
+import org.app.courseapp.service.LessonCompletionService;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Каталог курсов для пользователя за фиксированное число запросов, сколько бы курсов ни было:
+ * записи пользователя, сводки рейтингов, ключевые слова, отзывы пользователя
+ * и число пройденных уроков грузятся пачкой, доступность по порядку курсов считается в памяти.
+ */
+@Component
+@RequiredArgsConstructor
+public class CourseCatalogAssembler {
+
+    private final CourseRepository courseRepository;
+    private final CourseEnrollmentRepository enrollmentRepository;
+    private final CourseReviewRepository reviewRepository;
+    private final CourseRatingSummaryService ratingSummaryService;
+    private final LessonCompletionService lessonCompletionService;
+
+    public List<CourseDto> assemble(List<Course> courses, Long userId) {
+        List<CourseEnrollment> enrollments = userId != null
+                ? enrollmentRepository.findByUserIdWithCourse(userId)
+                : List.of();
+        return assemble(courses, userId, enrollments);
+    }
+
+    /**
+     * @param enrollments все записи пользователя — если вызывающий их уже загрузил
+     */
+    public List<CourseDto> assemble(List<Course> courses, Long userId, List<CourseEnrollment> enrollments) {
+        if (courses.isEmpty()) {
+            return List.of();
+        }
+        List<Long> courseIds = courses.stream().map(Course::getId).toList();
+
+        Map<Long, CourseEnrollment> enrollmentByCourse = enrollments.stream()
+                .collect(Collectors.toMap(e -> e.getCourse().getId(), Function.identity(), (a, b) -> a));
+        boolean hasActiveCourse = enrollments.stream()
+                .anyMatch(e -> !Boolean.TRUE.equals(e.getCompleted()));
+
+        Map<Integer, Long> courseIdByOrder = resolveCourseIdsByOrder(courses);
+
+        Map<Long, CourseRatingSummary> ratings = ratingSummaryService.getSummaries(courseIds);
+
+        Map<Long, List<String>> keywords = new HashMap<>();
+        for (CourseRepository.CourseKeyword row : courseRepository.findKeywordsByCourseIds(courseIds)) {
+            keywords.computeIfAbsent(row.getCourseId(), id -> new ArrayList<>()).add(row.getKeyword());
+        }
+
+        Set<Long> reviewedCourseIds = userId != null
+                ? reviewRepository.findReviewedCourseIds(userId)
+                : Set.of();
+
+        Map<Long, Long> completedLessons = loadCompletedLessons(userId, courseIds, enrollmentByCourse.keySet());
+
+        return courses.stream()
+                .map(course -> toDto(course, userId, enrollmentByCourse, hasActiveCourse, courseIdByOrder,
+                        ratings.get(course.getId()),
+                        keywords.getOrDefault(course.getId(), List.of()),
+                        reviewedCourseIds.contains(course.getId()),
+                        completedLessons.getOrDefault(course.getId(), 0L)))
+                .toList();
+    }
+
+    private CourseDto toDto(
+            Course course,
+            Long userId,
+            Map<Long, CourseEnrollment> enrollmentByCourse,
+            boolean hasActiveCourse,
+            Map<Integer, Long> courseIdByOrder,
+            CourseRatingSummary rating,
+            List<String> keywords,
+            boolean hasUserRated,
+            long progress
+    ) {
+        boolean isEnrolled = false;
+        boolean isCompleted = false;
+        boolean available = true;
+        String unavailableReason = null;
+
+        if (userId != null) {
+            CourseEnrollment enrollment = enrollmentByCourse.get(course.getId());
+            isEnrolled = enrollment != null;
+            isCompleted = enrollment != null && Boolean.TRUE.equals(enrollment.getCompleted());
+
+            boolean previousCompleted = true;
+            if (course.getCourseOrder() > 1) {
+                Long previousCourseId = courseIdByOrder.get(course.getCourseOrder() - 1);
+                if (previousCourseId != null) {
+                    CourseEnrollment previous = enrollmentByCourse.get(previousCourseId);
+                    previousCompleted = previous != null && Boolean.TRUE.equals(previous.getCompleted());
+                }
+            }
+
+            if (isEnrolled) {
+                available = true;
+            } else if (hasActiveCourse) {
+                available = false;
+                unavailableReason = "Сначала завершите текущий курс";
+            } else if (!previousCompleted) {
+                available = false;
+                unavailableReason = "Сначала завершите предыдущий курс";
+            }
+        }
+
+        double averageRating = rating != null ? rating.getAverageRating() : 0.0;
+        long totalRatings = rating != null ? rating.getRatingCount() : 0L;
+
+        return CourseDto.builder()
+                .id(course.getId())
+                .title(course.getTitle())
+                .description(course.getDescription())
+                .currentProgress(isEnrolled ? progress : 0)
+                .durationDays(course.getDurationDays())
+                .createdByEmail(course.getCreatedBy() != null ? course.getCreatedBy().getEmail() : null)
+                .createdAt(course.getCreatedAt())
+                .updatedAt(course.getUpdatedAt())
+                .isEnrolled(isEnrolled)
+                .isCompleted(isCompleted)
+                .keywords(keywords)
+                .averageRating(averageRating)
+                .totalRatings(totalRatings)
+                .formattedRating(String.format("%.1f", averageRating))
+                .hasUserRated(hasUserRated)
+                .hasUserReviewed(hasUserRated)
+                .available(available)
+                .order(course.getCourseOrder())
+                .unavailableReason(unavailableReason)
+                .build();
+    }
+
+    // Предыдущие по порядку курсы, которых нет в рендеримом списке, добираются одним запросом
+    private Map<Integer, Long> resolveCourseIdsByOrder(List<Course> courses) {
+        Map<Integer, Long> courseIdByOrder = new HashMap<>();
+        courses.forEach(c -> courseIdByOrder.put(c.getCourseOrder(), c.getId()));
+
+        List<Integer> missingOrders = courses.stream()
+                .map(c -> c.getCourseOrder() - 1)
+                .filter(order -> order >= 1 && !courseIdByOrder.containsKey(order))
+                .distinct()
+                .toList();
+        if (!missingOrders.isEmpty()) {
+            courseRepository.findByCourseOrderIn(missingOrders)
+                    .forEach(c -> courseIdByOrder.put(c.getCourseOrder(), c.getId()));
+        }
+        return courseIdByOrder;
+    }
+
+    private Map<Long, Long> loadCompletedLessons(Long userId, List<Long> courseIds, Collection<Long> enrolledCourseIds) {
+        if (userId == null) {
+            return Map.of();
+        }
+        List<Long> enrolled = courseIds.stream().filter(enrolledCourseIds::contains).toList();
+        if (enrolled.isEmpty()) {
+            return Map.of();
+        }
+        return lessonCompletionService.getCompletedLessonCounts(userId, enrolled);
+    }
+}
@@ -7,14 +7,17 @@ import org.app.courseapp.dto.response.userProfile.*;
 import org.app.courseapp.model.*;
 import org.app.courseapp.model.users.*;
 import org.app.courseapp.repository.*;
+import org.app.courseapp.security.StreamTokenService;
 import org.app.courseapp.service.impl.MinioService;
+import org.app.courseapp.service.impl.TranscodingService;
 import org.springframework.stereotype.Component;
 
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
@@ -24,133 +27,85 @@ public class Mapper {
     private final MinioService minioService;
     private final VideoRepository videoRepository;
     private final VideoProgressRepository videoProgressRepository;
-    private final CourseEnrollmentRepository enrollmentRepository;
-    private final CourseReviewRepository reviewRepository;
-    private final CourseRepository courseRepository;
-    private final LessonRepository lessonRepository;
     private final LessonReportRepository reportRepository;
     private final UserRepository userRepository;
     private final RegistrationAnswerRepository registrationAnswerRepository;
     private final ReviewLikeRepository reviewLikeRepository;
 
-    private final CompletionChecker completionChecker;
+    private final CourseCatalogAssembler courseCatalogAssembler;
+    private final StreamTokenService streamTokenService;
 
     public CourseDto convertCourseToDto(Course course, Long userId) {
-        boolean isEnrolled = false;
-        boolean isCompleted = false;
-        boolean available = true;
-        String unavailableReason = null;
-        long progress = 0;
-
-        if (userId != null) {
-            List<CourseEnrollment> userEnrollments = enrollmentRepository.findByUserId(userId);
-
-            Optional<CourseEnrollment> currentEnrollment = userEnrollments.stream()
-                    .filter(e -> e.getCourse().getId().equals(course.getId()))
-                    .findFirst();
-
-            isEnrolled = currentEnrollment.isPresent();
-            isCompleted = currentEnrollment
-                    .map(e -> Boolean.TRUE.equals(e.getCompleted()))
-                    .orElse(false);
-
-            if (isEnrolled) {
-                progress = calculateCourseProgress(course.getId(), userId);
-            }
-
-            boolean hasActiveCourse = userEnrollments.stream()
-                    .anyMatch(e -> !Boolean.TRUE.equals(e.getCompleted()));
-
-            boolean previousCompleted = true;
-            if (course.getCourseOrder() > 1) {
-                Optional<Course> previousCourse = courseRepository.findByCourseOrder(course.getCourseOrder() - 1);
-                if (previousCourse.isPresent()) {
-                    previousCompleted = userEnrollments.stream()
-                            .filter(e -> e.getCourse().getId().equals(previousCourse.get().getId()))
-                            .findFirst()
-                            .map(e -> Boolean.TRUE.equals(e.getCompleted()))
-                            .orElse(false);
-                }
-            }
-
-            if (isEnrolled) {
-                available = true;
-            } else if (hasActiveCourse) {
-                available = false;
-                unavailableReason = "Сначала завершите текущий курс";
-            } else if (!previousCompleted) {
-                available = false;
-                unavailableReason = "Сначала завершите предыдущий курс";
-            }
-        }
+        return courseCatalogAssembler.assemble(List.of(course), userId).get(0);
+    }
 
-        Double averageRating = reviewRepository.findAverageRatingByCourseId(course.getId());
-        Long totalRatings = reviewRepository.countByCourseId(course.getId());
+    public LessonDto convertLessonToDto(Lesson lesson, Long userId) {
+        return convertLessonsToDto(List.of(lesson), userId).get(0);
+    }
 
-        if (averageRating == null) {
-            averageRating = 0.0;
-            totalRatings = 0L;
+    /**
+     * Уроки пачкой: видео, прогресс и отметки об отчётах грузятся тремя запросами
+     * на весь список, а не запросом на каждое видео и урок.
+     */
+    public List<LessonDto> convertLessonsToDto(List<Lesson> lessons, Long userId) {
+        if (lessons.isEmpty()) {
+            return List.of();
         }
+        List<Long> lessonIds = lessons.stream().map(Lesson::getId).toList();
 
-        boolean hasUserRated = false;
-        boolean hasUserReviewed = false;
-        if (userId != null) {
-            hasUserRated = reviewRepository.existsByUserIdAndCourseId(userId, course.getId());
-            hasUserReviewed = hasUserRated;
-        }
+        Map<Long, List<Video>> videosByLesson = videoRepository
+                .findByLessonIdInAndTypeWithCategory(lessonIds, VideoType.LESSON).stream()
+                .collect(Collectors.groupingBy(v -> v.getLesson().getId()));
 
-        return CourseDto.builder()
-                .id(course.getId())
-                .title(course.getTitle())
-                .description(course.getDescription())
-                .currentProgress(progress)
-                .durationDays(course.getDurationDays())
-                .createdByEmail(course.getCreatedBy() != null ? course.getCreatedBy().getEmail() : null)
-                .createdAt(course.getCreatedAt())
-                .updatedAt(course.getUpdatedAt())
-                .isEnrolled(isEnrolled)
-                .isCompleted(isCompleted)
-                .keywords(course.getKeywords())
-                .averageRating(averageRating)
-                .totalRatings(totalRatings)
-                .formattedRating(String.format("%.1f", averageRating))
-                .hasUserRated(hasUserRated)
-                .hasUserReviewed(hasUserReviewed)
-                .available(available)
-                .order(course.getCourseOrder())
-                .unavailableReason(unavailableReason)
-                .build();
-    }
+        Map<Long, VideoProgress> progressByVideo = videoProgressRepository
+                .findByUserIdAndVideoLessonIdIn(userId, lessonIds).stream()
+                .collect(Collectors.toMap(p -> p.getVideo().getId(), p -> p, (a, b) -> a));
 
-    public LessonDto convertLessonToDto(Lesson lesson, Long userId) {
-        List<Video> lessonVideos = lesson.getLessonVideos();
-        boolean isCompleted = !lessonVideos.isEmpty() &&
-                lessonVideos.stream()
-                        .allMatch(video -> {
-                            Optional<VideoProgress> progress = videoProgressRepository
-                                    .findByUserIdAndVideoId(userId, video.getId());
-                            return progress.isPresent() && Boolean.TRUE.equals(progress.get().getIsCompleted());
-                        });
-
-        return LessonDto.builder()
-                .id(lesson.getId())
-                .title(lesson.getTitle())
-                .description(lesson.getDescription())
-                .dayNumber(lesson.getDayNumber())
-                .isCompleted(isCompleted)
-                .isReportSubmitted(reportRepository.existsByLessonIdAndParentId(lesson.getId(), userId))
-                .videos(lessonVideos.stream()
-                        .map(video -> convertVideoToDto(video, userId))
-                        .toList())
-                .build();
-    }
+        Set<Long> reportedLessonIds = reportRepository.findReportedLessonIds(userId, lessonIds);
 
-    public VideoDto convertVideoToDto(Video video, Long userId) {
-        String videoUrl = minioService.getPresignedUrl(MinioBucket.VIDEO, video.getObjectKey(), 2);
+        return lessons.stream()
+                .map(lesson -> {
+                    List<Video> lessonVideos = videosByLesson.getOrDefault(lesson.getId(), List.of());
+                    boolean isCompleted = !lessonVideos.isEmpty() &&
+                            lessonVideos.stream().allMatch(video -> {
+                                VideoProgress progress = progressByVideo.get(video.getId());
+                                return progress != null && Boolean.TRUE.equals(progress.getIsCompleted());
+                            });
+
+                    return LessonDto.builder()
+                            .id(lesson.getId())
+                            .title(lesson.getTitle())
+                            .description(lesson.getDescription())
+                            .dayNumber(lesson.getDayNumber())
+                            .isCompleted(isCompleted)
+                            .isReportSubmitted(reportedLessonIds.contains(lesson.getId()))
+                            .videos(lessonVideos.stream()
+                                    // В списке уроков доступ к категориям не проверяется — без токенов потока
+                                    .map(video -> convertVideoToDto(video, userId,
+                                            progressByVideo.get(video.getId()), false))
+                                    .toList())
+                            .build();
+                })
+                .toList();
+    }
 
+    /**
+     * @param streamable доступ к видео уже проверен вызывающим — только тогда в DTO кладётся
+     *                   streamUrl с токеном; без токена плеер получает его через GET /videos/{id}
+     */
+    public VideoDto convertVideoToDto(Video video, Long userId, boolean streamable) {
         VideoProgress progress = videoProgressRepository
                 .findByUserIdAndVideoId(userId, video.getId())
                 .orElse(null);
+        return convertVideoToDto(video, userId, progress, streamable);
+    }
+
+    // progress уже загружен вызывающим (null — пользователь видео не открывал)
+    public VideoDto convertVideoToDto(Video video, Long userId, VideoProgress progress, boolean streamable) {
+        // Пока ffmpeg не закончил, объекта по objectKey ещё нет
+        String videoUrl = video.isReady()
+                ? minioService.getPresignedUrl(MinioBucket.VIDEO, video.getObjectKey(), 2)
+                : null;
 
         return VideoDto.builder()
                 .id(video.getId())
@@ -159,10 +114,28 @@ public class Mapper {
                 .categoryId(video.getCategory() != null ? video.getCategory().getId() : null)
                 .categoryName(video.getCategory() != null ? video.getCategory().getName() : null)
                 .videoUrl(videoUrl)
+                .manifestUrl(video.isReady() && video.getHlsPlaylistKey() != null
+                        ? "/videos/" + video.getId() + "/hls/" + TranscodingService.HLS_MASTER_PLAYLIST
+                        : null)
+                .streamUrl(streamable && video.isReady()
+                        ? "/videos/" + video.getId() + "/stream?token=" + streamTokenService.issue(video, userId)
+                        : null)
                 .durationSeconds(video.getDurationSeconds())
                 .fileSizeBytes(video.getFileSizeBytes())
                 .isCompleted(progress != null && progress.getIsCompleted())
                 .watchedSeconds(progress != null ? progress.getWatchedSeconds() : 0L)
+                .status(video.isReady() ? VideoStatus.READY : video.getStatus())
+                .processingProgress(video.getProcessingProgress())
+                .build();
+    }
+
+    public VideoProcessingStatusDto convertToVideoProcessingStatusDto(Video video) {
+        return VideoProcessingStatusDto.builder()
+                .videoId(video.getId())
+                .status(video.isReady() ? VideoStatus.READY : video.getStatus())
+                .progress(video.isReady() ? Integer.valueOf(100) : video.getProcessingProgress())
+                .attempts(video.getProcessingAttempts())
+                .error(video.getProcessingError())
                 .build();
     }
 
@@ -182,18 +155,6 @@ public class Mapper {
         return result;
     }
 
-    private long calculateCourseProgress(Long courseId, Long userId) {
-        List<Lesson> lessons = lessonRepository.findByCourseIdOrderByDayNumber(courseId);
-        if (lessons.isEmpty()) {
-            return 0;
-        }
-
-        return lessons.stream()
-                .filter(lesson -> !lesson.getLessonVideos().isEmpty())
-                .filter(lesson -> completionChecker.isLessonCompleted(lesson, userId))
-                .count();
-    }
-
     public BaseUserProfileDto convertToProfileDto(User user) {
         if (user instanceof Parent) {
             return convertParentToDto((Parent) user);
@@ -438,12 +399,16 @@ public class Mapper {
                 .build();
     }
 
-    public ParentLessonReportFullDto buildFullDto(LessonReport report, Long lessonId) {
+    // viewerId — куратор или админ, открывший отчёт: токен стрима выдаётся ему, прогресс показывается родителя
+    public ParentLessonReportFullDto buildFullDto(LessonReport report, Long lessonId, Long viewerId) {
+        Long parentId = report.getParent().getId();
         List<VideoDto> homeworkVideos = videoRepository
-                .findByLessonIdAndUploadedById(lessonId, report.getParent().getId())
+                .findByLessonIdAndUploadedById(lessonId, parentId)
                 .stream()
                 .filter(v -> v.getType() == VideoType.HOMEWORK)
-                .map(v -> convertVideoToDto(v, report.getParent().getId()))
+                // Полные отчёты открыты только кураторам и админам — им доступно любое видео
+                .map(v -> convertVideoToDto(v, viewerId,
+                        videoProgressRepository.findByUserIdAndVideoId(parentId, v.getId()).orElse(null), true))
                 .toList();
 
         User parent = report.getParent();
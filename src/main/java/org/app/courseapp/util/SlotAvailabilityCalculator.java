@@ -0,0 +1,126 @@
+package org.app.courseapp.util;
+
+import lombok.RequiredArgsConstructor;
+import org.app.courseapp.dto.response.SpecialistSlotDto;
+import org.app.courseapp.model.ScheduleExceptionType;
+import org.app.courseapp.model.SpecialistScheduleException;
+import org.app.courseapp.model.SpecialistScheduleRule;
+import org.app.courseapp.model.SpecialistSlot;
+import org.app.courseapp.repository.SpecialistScheduleExceptionRepository;
+import org.app.courseapp.repository.SpecialistScheduleRuleRepository;
+import org.app.courseapp.repository.SpecialistSlotRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Слоты специалиста за окно дат = недельное правило + разовые EXTRA − BLOCKED,
+ * поверх которых накладываются материализованные строки specialist_slots
+ * (бронирования, удержания и слоты, созданные до перехода на правила).
+ * Три запроса на любое окно, без генерации строк наперёд.
+ */
+@Component
+@RequiredArgsConstructor
+public class SlotAvailabilityCalculator {
+
+    private final SpecialistScheduleRuleRepository ruleRepository;
+    private final SpecialistScheduleExceptionRepository exceptionRepository;
+    private final SpecialistSlotRepository slotRepository;
+
+    /**
+     * @param includeBooked true — вид специалиста (занятые слоты тоже), false — только свободные и не удержанные
+     */
+    public List<SpecialistSlotDto> compute(Long specialistId, LocalDate from, LocalDate to, boolean includeBooked) {
+        LocalDateTime now = LocalDateTime.now();
+        TreeMap<LocalDateTime, SpecialistSlotDto> slots = new TreeMap<>();
+
+        ruleRepository.findBySpecialistId(specialistId)
+                .ifPresent(rule -> expandRule(rule, from, to, slots));
+
+        List<SpecialistScheduleException> exceptions =
+                exceptionRepository.findBySpecialistIdAndDateBetween(specialistId, from, to);
+        for (SpecialistScheduleException exception : exceptions) {
+            if (exception.getType() == ScheduleExceptionType.EXTRA) {
+                slots.put(LocalDateTime.of(exception.getDate(), exception.getTime()),
+                        virtualSlot(exception.getDate(), exception.getTime()));
+            }
+        }
+        for (SpecialistScheduleException exception : exceptions) {
+            if (exception.getType() == ScheduleExceptionType.BLOCKED) {
+                slots.remove(LocalDateTime.of(exception.getDate(), exception.getTime()));
+            }
+        }
+
+        // На одно время может быть несколько строк (дубликаты от старой генерации) — побеждает
+        // занятая, иначе свободная строка вернула бы уже забронированное время в выдачу
+        Map<LocalDateTime, SpecialistSlot> rows = new HashMap<>();
+        for (SpecialistSlot row : slotRepository.findBySpecialistIdAndDateBetween(specialistId, from, to)) {
+            rows.merge(LocalDateTime.of(row.getDate(), row.getTime()), row,
+                    (kept, other) -> occupancy(other, now) > occupancy(kept, now) ? other : kept);
+        }
+
+        for (Map.Entry<LocalDateTime, SpecialistSlot> entry : rows.entrySet()) {
+            LocalDateTime key = entry.getKey();
+            SpecialistSlot row = entry.getValue();
+            if (!includeBooked && (row.isBooked() || row.isHeldAt(now))) {
+                slots.remove(key);
+            } else {
+                slots.put(key, SpecialistSlotDto.builder()
+                        .id(row.getId())
+                        .date(row.getDate())
+                        .time(row.getTime())
+                        .booked(row.isBooked())
+                        .build());
+            }
+        }
+
+        return new ArrayList<>(slots.values());
+    }
+
+    public boolean isOffered(Long specialistId, LocalDate date, LocalTime time) {
+        return compute(specialistId, date, date, false).stream()
+                .anyMatch(slot -> slot.getTime().equals(time));
+    }
+
+    private void expandRule(SpecialistScheduleRule rule, LocalDate from, LocalDate to,
+                            TreeMap<LocalDateTime, SpecialistSlotDto> slots) {
+        LocalDate start = from.isBefore(rule.getValidFrom()) ? rule.getValidFrom() : from;
+        for (LocalDate date = start; !date.isAfter(to); date = date.plusDays(1)) {
+            if (!rule.worksOn(date.getDayOfWeek())) {
+                continue;
+            }
+            LocalTime time = rule.getStartTime();
+            while (time.isBefore(rule.getEndTime())) {
+                slots.put(LocalDateTime.of(date, time), virtualSlot(date, time));
+                LocalTime next = time.plusMinutes(rule.getSlotDurationMinutes());
+                // plusMinutes заворачивает через полночь — дальше слотов нет
+                if (!next.isAfter(time)) {
+                    break;
+                }
+                time = next;
+            }
+        }
+    }
+
+    private SpecialistSlotDto virtualSlot(LocalDate date, LocalTime time) {
+        return SpecialistSlotDto.builder()
+                .date(date)
+                .time(time)
+                .booked(false)
+                .build();
+    }
+
+    private static int occupancy(SpecialistSlot row, LocalDateTime now) {
+        if (row.isBooked()) {
+            return 2;
+        }
+        return row.isHeldAt(now) ? 1 : 0;
+    }
+}
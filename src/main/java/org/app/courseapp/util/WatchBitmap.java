@@ -0,0 +1,75 @@
+package org.app.courseapp.util;
+
+import java.util.BitSet;
+
+/**
+ * Просмотренные отрезки видео: бит на каждые BUCKET_SECONDS секунд. Часовое видео — 720 бит (90 байт).
+ * В БД хранится как bit varying длиной bucketCount, слияние просмотров — побитовый OR прямо в upsert'е.
+ */
+public final class WatchBitmap {
+
+    public static final int BUCKET_SECONDS = 5;
+
+    private WatchBitmap() {
+    }
+
+    public static int bucketCount(Long durationSeconds) {
+        if (durationSeconds == null || durationSeconds <= 0) {
+            return 0;
+        }
+        return (int) ((durationSeconds + BUCKET_SECONDS - 1) / BUCKET_SECONDS);
+    }
+
+    /**
+     * Отмечает отрезок [fromSeconds, toSeconds]; выход за длительность обрезается.
+     * @return true, если появились новые биты
+     */
+    public static boolean mark(BitSet buckets, long fromSeconds, long toSeconds, int bucketCount) {
+        if (bucketCount == 0 || toSeconds < fromSeconds) {
+            return false;
+        }
+        int from = (int) Math.min(Math.max(fromSeconds, 0) / BUCKET_SECONDS, bucketCount - 1);
+        int to = (int) Math.min(toSeconds / BUCKET_SECONDS, bucketCount - 1);
+        int before = buckets.cardinality();
+        buckets.set(from, to + 1);
+        return buckets.cardinality() != before;
+    }
+
+    // Текстовое представление bit varying: "0110…", первый символ — первый отрезок
+    public static String toBits(BitSet buckets, int bucketCount) {
+        char[] bits = new char[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            bits[i] = buckets.get(i) ? '1' : '0';
+        }
+        return new String(bits);
+    }
+
+    public static BitSet fromBits(String bits) {
+        BitSet buckets = new BitSet(bits.length());
+        for (int i = bits.indexOf('1'); i >= 0; i = bits.indexOf('1', i + 1)) {
+            buckets.set(i);
+        }
+        return buckets;
+    }
+
+    /**
+     * Сумма битовых карт зрителей: counts[i] — сколько зрителей видели i-й отрезок.
+     * Идёт по 64-битным словам: пустые слова пропускаются целиком, в непустых — только выставленные биты.
+     */
+    public static void accumulate(int[] counts, String bits) {
+        long[] words = fromBits(bits).toLongArray();
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            int base = w << 6;
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                int index = base + bit;
+                if (index >= counts.length) {
+                    break;
+                }
+                counts[index]++;
+                word &= word - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.app.courseapp.security.jwt;
+
+import org.app.courseapp.model.UserRole;
+import org.app.courseapp.model.VideoCategory;
+import org.app.courseapp.model.users.Parent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenUtilTest {
+
+    // HS512 требует ключ не короче 64 байт
+    private static final String SECRET = "test-secret-".repeat(8);
+    private static final String OTHER_SECRET = "other-secret-".repeat(8);
+    private static final long EXPIRATION_MS = 60_000;
+    private static final long REFRESH_EXPIRATION_MS = 120_000;
+
+    private final JwtTokenUtil selfContained = new JwtTokenUtil(SECRET, EXPIRATION_MS, REFRESH_EXPIRATION_MS, true);
+    private final JwtTokenUtil emailOnly = new JwtTokenUtil(SECRET, EXPIRATION_MS, REFRESH_EXPIRATION_MS, false);
+
+    @Test
+    void selfContainedClaimsRoundTrip() {
+        Instant before = Instant.now();
+        JwtTokenUtil.TokenClaims claims = selfContained.parse(selfContained.generateAccessToken(parent(), "EMAIL"));
+
+        assertNotNull(claims);
+        assertEquals("parent@example.com", claims.subject());
+        assertTrue(claims.isAccess());
+        assertEquals("EMAIL", claims.authType());
+        assertEquals(42L, claims.userId());
+        assertEquals(Set.of("ROLE_PARENT"), claims.roles());
+        BitSet expectedGrants = new BitSet();
+        expectedGrants.set(3);
+        expectedGrants.set(70);
+        assertEquals(expectedGrants, claims.categoryGrants());
+        assertEquals(7L, claims.accessVersion());
+        assertTrue(claims.isSelfContained());
+        // Срок в токене хранится с точностью до секунды
+        assertFalse(claims.expiresAt().isBefore(before.plusMillis(EXPIRATION_MS).minusSeconds(1)));
+    }
+
+    @Test
+    void emailOnlyTokenIsNotSelfContained() {
+        JwtTokenUtil.TokenClaims claims = emailOnly.parse(emailOnly.generateAccessToken(parent(), "EMAIL"));
+
+        assertNotNull(claims);
+        assertEquals("parent@example.com", claims.subject());
+        assertTrue(claims.isAccess());
+        assertNull(claims.userId());
+        assertNull(claims.roles());
+        assertFalse(claims.isSelfContained());
+    }
+
+    @Test
+    void refreshTokenIsNotAccess() {
+        JwtTokenUtil.TokenClaims claims = selfContained.parse(selfContained.generateRefreshToken("parent@example.com"));
+
+        assertNotNull(claims);
+        assertTrue(claims.isRefresh());
+        assertFalse(claims.isAccess());
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        JwtTokenUtil expired = new JwtTokenUtil(SECRET, -60_000, -60_000, true);
+
+        assertNull(selfContained.parse(expired.generateAccessToken(parent(), "EMAIL")));
+        assertNull(selfContained.parse(expired.generateRefreshToken("parent@example.com")));
+    }
+
+    @Test
+    void tokenSignedWithOtherKeyIsRejected() {
+        JwtTokenUtil foreign = new JwtTokenUtil(OTHER_SECRET, EXPIRATION_MS, REFRESH_EXPIRATION_MS, true);
+
+        assertNull(selfContained.parse(foreign.generateAccessToken(parent(), "EMAIL")));
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        String token = selfContained.generateAccessToken(parent(), "EMAIL");
+        String[] parts = token.split("\\.");
+        String forged = emailOnly.generateTokenFromUsername("admin@example.com", "EMAIL").split("\\.")[1];
+
+        assertNull(selfContained.parse(parts[0] + "." + forged + "." + parts[2]));
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertNull(selfContained.parse("not-a-jwt"));
+        assertNull(selfContained.parse(""));
+    }
+
+    private static Parent parent() {
+        return Parent.builder()
+                .id(42L)
+                .email("parent@example.com")
+                .roles(Set.of(UserRole.builder().id(1L).name("ROLE_PARENT").build()))
+                .allowedVideoCategories(Set.of(
+                        VideoCategory.builder().id(3L).name("Speech").build(),
+                        VideoCategory.builder().id(70L).name("Motor").build()))
+                .accessVersion(7L)
+                .build();
+    }
+}
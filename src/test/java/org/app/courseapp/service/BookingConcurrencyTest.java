@@ -0,0 +1,113 @@
+package org.app.courseapp.service;
+
+import org.app.courseapp.dto.request.AddSlotsRequest;
+import org.app.courseapp.dto.request.BookSlotRequest;
+import org.app.courseapp.model.users.Parent;
+import org.app.courseapp.model.users.Specialist;
+import org.app.courseapp.support.ConcurrentRunner;
+import org.app.courseapp.support.TestFixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class BookingConcurrencyTest {
+
+    private static final int THREADS = 12;
+    private static final LocalTime TIME = LocalTime.of(11, 0);
+
+    @Autowired
+    private SpecialistSlotService slotService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Specialist specialist;
+    private LocalDate date;
+    private List<Parent> parents;
+
+    @BeforeEach
+    void setUp() {
+        specialist = fixtures.specialist();
+        date = LocalDate.now().plusDays(1);
+
+        AddSlotsRequest slots = new AddSlotsRequest();
+        slots.setDate(date);
+        slots.setTimes(List.of(TIME));
+        slotService.addSlots(slots, specialist.getEmail());
+
+        parents = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            parents.add(fixtures.parent());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanup();
+    }
+
+    @Test
+    void parallelBookingsOfOneSlotHaveSingleWinner() throws Exception {
+        int sessionsBefore = sessionCount();
+
+        List<Throwable> failures = ConcurrentRunner.run(THREADS, parents::get,
+                i -> slotService.bookSlot(request(), parents.get(i).getEmail()));
+
+        assertEquals(THREADS - 1, failures.size(), () -> "Expected one booking to win: " + failures);
+        assertEquals(1, bookings());
+        assertEquals(sessionsBefore + 1, sessionCount());
+        assertEquals(bookedBy(), fixtures.jdbc().queryForObject(
+                "SELECT b.parent_id FROM bookings b JOIN specialist_slots s ON s.id = b.slot_id "
+                        + "WHERE s.specialist_id = ?", Long.class, specialist.getId()));
+    }
+
+    @Test
+    void repeatedBookingsBySameParentCreateOneBooking() throws Exception {
+        Parent parent = parents.get(0);
+        int sessionsBefore = sessionCount();
+
+        // Двойной клик: один и тот же родитель отправляет бронирование из нескольких потоков
+        List<Throwable> failures = ConcurrentRunner.run(THREADS, i -> parent,
+                i -> slotService.bookSlot(request(), parent.getEmail()));
+
+        assertEquals(THREADS - 1, failures.size(), () -> "Expected one booking to win: " + failures);
+        assertEquals(1, bookings());
+        assertEquals(sessionsBefore + 1, sessionCount());
+        assertEquals(parent.getId(), bookedBy());
+    }
+
+    private BookSlotRequest request() {
+        BookSlotRequest request = new BookSlotRequest();
+        request.setSpecialistId(specialist.getId());
+        request.setDate(date);
+        request.setTime(TIME);
+        return request;
+    }
+
+    private Long bookedBy() {
+        return fixtures.jdbc().queryForObject(
+                "SELECT booked_by_parent_id FROM specialist_slots WHERE specialist_id = ? AND date = ? AND time = ?",
+                Long.class, specialist.getId(), date, TIME);
+    }
+
+    private int bookings() {
+        return fixtures.jdbc().queryForObject(
+                "SELECT count(*) FROM bookings b JOIN specialist_slots s ON s.id = b.slot_id "
+                        + "WHERE s.specialist_id = ?", Integer.class, specialist.getId());
+    }
+
+    private int sessionCount() {
+        return fixtures.jdbc().queryForObject(
+                "SELECT COALESCE(session_count, 0) FROM specialists WHERE id = ?", Integer.class, specialist.getId());
+    }
+}
@@ -0,0 +1,107 @@
+package org.app.courseapp.service;
+
+import org.app.courseapp.model.CourseReview;
+import org.app.courseapp.model.users.Parent;
+import org.app.courseapp.repository.CourseReviewRepository;
+import org.app.courseapp.support.ConcurrentRunner;
+import org.app.courseapp.support.TestFixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ReviewLikeConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private CourseReviewRepository reviewRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Long reviewId;
+
+    @BeforeEach
+    void setUp() {
+        CourseReview review = new CourseReview();
+        review.setUser(fixtures.parent());
+        review.setCourse(fixtures.course());
+        review.setRating(5);
+        reviewId = reviewRepository.save(review).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        fixtures.cleanup();
+    }
+
+    @Test
+    void parallelTogglesBySameUserLeaveAtMostOneLike() throws Exception {
+        Parent parent = fixtures.parent();
+
+        List<Throwable> failures = ConcurrentRunner.run(THREADS, i -> parent,
+                i -> ratingService.toggleReviewLike(reviewId));
+
+        assertTrue(failures.isEmpty(), () -> "Toggles failed: " + failures);
+        int rows = likeRows();
+        assertTrue(rows <= 1, "Expected at most one like row, got " + rows);
+        assertEquals(rows, likeCount());
+    }
+
+    @Test
+    void oddNumberOfTogglesAfterRaceFlipsState() throws Exception {
+        Parent parent = fixtures.parent();
+        ConcurrentRunner.run(THREADS, i -> parent, i -> ratingService.toggleReviewLike(reviewId));
+
+        // Итог гонки — известное начальное состояние; нечётное число последовательных
+        // переключений обязано его инвертировать, а счётчик — совпасть со строками
+        int before = likeRows();
+        assertEquals(before, likeCount());
+        ConcurrentRunner.authenticate(parent);
+        for (int i = 0; i < 3; i++) {
+            ratingService.toggleReviewLike(reviewId);
+        }
+
+        assertEquals(1 - before, likeRows());
+        assertEquals(1 - before, likeCount());
+    }
+
+    @Test
+    void parallelLikesByDifferentUsersAreAllCounted() throws Exception {
+        List<Parent> parents = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            parents.add(fixtures.parent());
+        }
+
+        List<Throwable> failures = ConcurrentRunner.run(THREADS, parents::get,
+                i -> ratingService.toggleReviewLike(reviewId));
+
+        assertTrue(failures.isEmpty(), () -> "Likes failed: " + failures);
+        assertEquals(THREADS, likeRows());
+        assertEquals(THREADS, likeCount());
+    }
+
+    private int likeRows() {
+        return fixtures.jdbc().queryForObject(
+                "SELECT count(*) FROM review_likes WHERE course_review_id = ?", Integer.class, reviewId);
+    }
+
+    private int likeCount() {
+        return fixtures.jdbc().queryForObject(
+                "SELECT like_count FROM course_reviews WHERE id = ?", Integer.class, reviewId);
+    }
+}
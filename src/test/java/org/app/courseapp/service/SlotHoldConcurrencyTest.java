@@ -0,0 +1,122 @@
+package org.app.courseapp.service;
+
+import org.app.courseapp.dto.request.AddSlotsRequest;
+import org.app.courseapp.dto.request.BookSlotRequest;
+import org.app.courseapp.model.users.Parent;
+import org.app.courseapp.model.users.Specialist;
+import org.app.courseapp.support.ConcurrentRunner;
+import org.app.courseapp.support.TestFixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest
+class SlotHoldConcurrencyTest {
+
+    private static final int THREADS = 12;
+    private static final LocalTime TIME = LocalTime.of(10, 0);
+
+    @Autowired
+    private SpecialistSlotService slotService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Specialist specialist;
+    private LocalDate date;
+    private List<Parent> parents;
+
+    @BeforeEach
+    void setUp() {
+        specialist = fixtures.specialist();
+        date = LocalDate.now().plusDays(1);
+
+        AddSlotsRequest slots = new AddSlotsRequest();
+        slots.setDate(date);
+        slots.setTimes(List.of(TIME));
+        slotService.addSlots(slots, specialist.getEmail());
+
+        parents = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            parents.add(fixtures.parent());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.cleanup();
+    }
+
+    @Test
+    void parallelHoldsHaveSingleWinner() throws Exception {
+        List<Throwable> failures = ConcurrentRunner.run(THREADS, parents::get,
+                i -> slotService.holdSlot(request(), parents.get(i).getEmail()));
+
+        assertEquals(THREADS - 1, failures.size(), () -> "Expected one hold to win: " + failures);
+        assertNotNull(heldBy());
+        assertEquals(0, bookings());
+    }
+
+    @Test
+    void holdsAndBookingsRacingForSlotHaveSingleWinner() throws Exception {
+        // Чётные потоки удерживают слот, нечётные сразу бронируют — выиграть должен ровно один
+        List<Throwable> failures = ConcurrentRunner.run(THREADS, parents::get, i -> {
+            String email = parents.get(i).getEmail();
+            if (i % 2 == 0) {
+                slotService.holdSlot(request(), email);
+            } else {
+                slotService.bookSlot(request(), email);
+            }
+        });
+
+        assertEquals(THREADS - 1, failures.size(), () -> "Expected a single winner: " + failures);
+        int booked = bookings();
+        int held = heldBy() != null && booked == 0 ? 1 : 0;
+        assertEquals(1, booked + held);
+    }
+
+    @Test
+    void holderCompletesBookingWhileOthersAreRejected() throws Exception {
+        Parent holder = parents.get(0);
+        slotService.holdSlot(request(), holder.getEmail());
+
+        List<Throwable> failures = ConcurrentRunner.run(THREADS, parents::get,
+                i -> slotService.bookSlot(request(), parents.get(i).getEmail()));
+
+        assertEquals(THREADS - 1, failures.size(), () -> "Only the holder may book: " + failures);
+        assertEquals(1, bookings());
+        assertEquals(holder.getId(), fixtures.jdbc().queryForObject(
+                "SELECT b.parent_id FROM bookings b JOIN specialist_slots s ON s.id = b.slot_id "
+                        + "WHERE s.specialist_id = ?", Long.class, specialist.getId()));
+    }
+
+    private BookSlotRequest request() {
+        BookSlotRequest request = new BookSlotRequest();
+        request.setSpecialistId(specialist.getId());
+        request.setDate(date);
+        request.setTime(TIME);
+        return request;
+    }
+
+    private Long heldBy() {
+        return fixtures.jdbc().queryForObject(
+                "SELECT held_by_parent_id FROM specialist_slots WHERE specialist_id = ? AND date = ? AND time = ?",
+                Long.class, specialist.getId(), date, TIME);
+    }
+
+    private int bookings() {
+        return fixtures.jdbc().queryForObject(
+                "SELECT count(*) FROM bookings b JOIN specialist_slots s ON s.id = b.slot_id "
+                        + "WHERE s.specialist_id = ?", Integer.class, specialist.getId());
+    }
+}
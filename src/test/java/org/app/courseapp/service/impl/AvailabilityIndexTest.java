@@ -0,0 +1,144 @@
+package org.app.courseapp.service.impl;
+
+import org.app.courseapp.dto.response.SpecialistSlotDto;
+import org.app.courseapp.repository.SpecialistRepository;
+import org.app.courseapp.util.SlotAvailabilityCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AvailabilityIndexTest {
+
+    private static final Long SPECIALIST_ID = 1L;
+
+    private final SlotAvailabilityCalculator calculator = mock(SlotAvailabilityCalculator.class);
+    private final AvailabilityIndex index = new AvailabilityIndex(mock(SpecialistRepository.class), calculator);
+
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.now();
+    }
+
+    @Test
+    void unknownSpecialistHasNoMatch() {
+        assertNull(index.findEarliest(SPECIALIST_ID, today, today.plusDays(7), null, null, today.atStartOfDay()));
+    }
+
+    @Test
+    void earliestDayReturnsAllItsSlotsInOrder() {
+        slots(slot(today.plusDays(3), 15, 0),
+                slot(today.plusDays(2), 12, 0),
+                slot(today.plusDays(2), 9, 30));
+
+        AvailabilityIndex.Match match = findEarliest(today, today.plusDays(7), null, null, today.atStartOfDay());
+
+        assertEquals(today.plusDays(2), match.date());
+        assertEquals(List.of(LocalTime.of(9, 30), LocalTime.of(12, 0)), match.times());
+    }
+
+    @Test
+    void dayWindowSkipsEarlierDaysAndStopsAtEnd() {
+        slots(slot(today.plusDays(1), 10, 0),
+                slot(today.plusDays(5), 10, 0));
+
+        assertEquals(today.plusDays(5),
+                findEarliest(today.plusDays(2), today.plusDays(7), null, null, today.atStartOfDay()).date());
+        assertNull(findEarliest(today.plusDays(2), today.plusDays(4), null, null, today.atStartOfDay()));
+    }
+
+    @Test
+    void dayWindowBeyondHorizonIsIgnored() {
+        slots(slot(today.plusDays(AvailabilityIndex.HORIZON_DAYS - 1), 10, 0));
+
+        assertEquals(today.plusDays(AvailabilityIndex.HORIZON_DAYS - 1),
+                findEarliest(today.minusDays(3), today.plusDays(365), null, null, today.atStartOfDay()).date());
+    }
+
+    @Test
+    void timeWindowIsStartInclusiveEndExclusive() {
+        slots(slot(today.plusDays(1), 9, 0),
+                slot(today.plusDays(1), 10, 0),
+                slot(today.plusDays(1), 11, 0),
+                slot(today.plusDays(1), 12, 0));
+
+        AvailabilityIndex.Match match = findEarliest(today, today.plusDays(7),
+                LocalTime.of(10, 0), LocalTime.of(12, 0), today.atStartOfDay());
+
+        assertEquals(List.of(LocalTime.of(10, 0), LocalTime.of(11, 0)), match.times());
+    }
+
+    @Test
+    void dayWithoutSlotsInTimeWindowIsSkipped() {
+        slots(slot(today.plusDays(1), 8, 0),
+                slot(today.plusDays(2), 14, 0));
+
+        AvailabilityIndex.Match match = findEarliest(today, today.plusDays(7),
+                LocalTime.of(13, 0), LocalTime.of(18, 0), today.atStartOfDay());
+
+        assertEquals(today.plusDays(2), match.date());
+        assertEquals(List.of(LocalTime.of(14, 0)), match.times());
+    }
+
+    @Test
+    void slotsBeforeNotBeforeAreCutOff() {
+        LocalDate tomorrow = today.plusDays(1);
+        slots(slot(tomorrow, 9, 0),
+                slot(tomorrow, 10, 0),
+                slot(tomorrow, 11, 0));
+
+        // Слот, начинающийся ровно в notBefore, уже недоступен
+        AvailabilityIndex.Match match = findEarliest(today, today.plusDays(7), null, null,
+                tomorrow.atTime(10, 0));
+
+        assertEquals(List.of(LocalTime.of(11, 0)), match.times());
+    }
+
+    @Test
+    void daysBeforeNotBeforeAreSkipped() {
+        slots(slot(today.plusDays(1), 23, 0),
+                slot(today.plusDays(3), 8, 0));
+
+        AvailabilityIndex.Match match = findEarliest(today, today.plusDays(7), null, null,
+                today.plusDays(2).atTime(0, 0));
+
+        assertEquals(today.plusDays(3), match.date());
+    }
+
+    @Test
+    void noMatchWhenEverySlotIsPast() {
+        slots(slot(today.plusDays(1), 9, 0));
+
+        assertNull(findEarliest(today, today.plusDays(7), null, null, today.plusDays(1).atTime(9, 0)));
+    }
+
+    private AvailabilityIndex.Match findEarliest(LocalDate from, LocalDate to,
+                                                 LocalTime timeFrom, LocalTime timeTo, LocalDateTime notBefore) {
+        return index.findEarliest(SPECIALIST_ID, from, to, timeFrom, timeTo, notBefore);
+    }
+
+    private void slots(SpecialistSlotDto... slots) {
+        when(calculator.compute(eq(SPECIALIST_ID), any(), any(), anyBoolean())).thenReturn(List.of(slots));
+        index.refresh(SPECIALIST_ID);
+    }
+
+    private static SpecialistSlotDto slot(LocalDate date, int hour, int minute) {
+        return SpecialistSlotDto.builder()
+                .date(date)
+                .time(LocalTime.of(hour, minute))
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package org.app.courseapp.service.impl;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import org.app.courseapp.config.minio.MinioBucket;
+import org.app.courseapp.config.minio.MinioProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MinioServiceTest {
+
+    private static final int EXPIRY_HOURS = 2;
+
+    private final MinioClient publicClient = mock(MinioClient.class);
+    private final MutableClock clock = new MutableClock();
+    private MinioService minioService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AtomicInteger signed = new AtomicInteger();
+        when(publicClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class)))
+                .thenAnswer(invocation -> {
+                    GetPresignedObjectUrlArgs args = invocation.getArgument(0);
+                    return "https://storage/" + args.object() + "?sig=" + signed.incrementAndGet();
+                });
+
+        MinioProperties properties = new MinioProperties();
+        properties.setVideoBucket("videos");
+        properties.setAvatarBucket("avatars");
+        properties.setPresignedCacheSize(2);
+        minioService = new MinioService(mock(MinioClient.class), publicClient, properties, clock);
+    }
+
+    @Test
+    void urlIsReusedDuringFirstHalfOfExpiry() throws Exception {
+        String first = minioService.getPresignedUrl(MinioBucket.VIDEO, "a.mp4", EXPIRY_HOURS);
+        clock.advance(Duration.ofMinutes(59));
+        String second = minioService.getPresignedUrl(MinioBucket.VIDEO, "a.mp4", EXPIRY_HOURS);
+
+        assertEquals(first, second);
+        verify(publicClient, times(1)).getPresignedObjectUrl(any());
+    }
+
+    @Test
+    void urlIsResignedOnceHalfOfExpiryHasPassed() throws Exception {
+        String first = minioService.getPresignedUrl(MinioBucket.VIDEO, "a.mp4", EXPIRY_HOURS);
+        clock.advance(Duration.ofHours(1));
+        String second = minioService.getPresignedUrl(MinioBucket.VIDEO, "a.mp4", EXPIRY_HOURS);
+
+        assertNotEquals(first, second);
+        verify(publicClient, times(2)).getPresignedObjectUrl(any());
+    }
+
+    @Test
+    void bucketAndExpiryArePartOfCacheKey() throws Exception {
+        minioService.getPresignedUrl(MinioBucket.VIDEO, "a", EXPIRY_HOURS);
+        minioService.getPresignedUrl(MinioBucket.AVATAR, "a", EXPIRY_HOURS);
+        minioService.getPresignedUrl(MinioBucket.VIDEO, "a", EXPIRY_HOURS + 1);
+
+        verify(publicClient, times(3)).getPresignedObjectUrl(any());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() throws Exception {
+        String a = minioService.getPresignedUrl(MinioBucket.VIDEO, "a.mp4", EXPIRY_HOURS);
+        String b = minioService.getPresignedUrl(MinioBucket.VIDEO, "b.mp4", EXPIRY_HOURS);
+        // Обращение к a делает самой старой запись b — её и вытеснит c
+        minioService.getPresignedUrl(MinioBucket.VIDEO, "a.mp4", EXPIRY_HOURS);
+        minioService.getPresignedUrl(MinioBucket.VIDEO, "c.mp4", EXPIRY_HOURS);
+        verify(publicClient, times(3)).getPresignedObjectUrl(any());
+
+        assertEquals(a, minioService.getPresignedUrl(MinioBucket.VIDEO, "a.mp4", EXPIRY_HOURS));
+        verify(publicClient, times(3)).getPresignedObjectUrl(any());
+
+        assertNotEquals(b, minioService.getPresignedUrl(MinioBucket.VIDEO, "b.mp4", EXPIRY_HOURS));
+        verify(publicClient, times(4)).getPresignedObjectUrl(any());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.app.courseapp.support;
+
+import org.app.courseapp.model.users.User;
+import org.app.courseapp.security.UserDetailsImpl;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Запускает задачи одновременно: все потоки ждут общий старт, чтобы гонка была настоящей.
+ */
+public final class ConcurrentRunner {
+
+    private ConcurrentRunner() {
+    }
+
+    /**
+     * @param userOf пользователь, от имени которого выполняется i-я задача
+     * @return исключения задач (ожидаемые отказы в гонке тоже сюда попадают)
+     */
+    public static List<Throwable> run(int tasks, IntFunction<User> userOf, IntTask task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks);
+        CountDownLatch ready = new CountDownLatch(tasks);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        try {
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                User user = userOf.apply(i);
+                pool.execute(() -> {
+                    authenticate(user);
+                    ready.countDown();
+                    try {
+                        start.await();
+                        task.run(index);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                });
+            }
+            ready.await();
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            if (!pool.awaitTermination(60, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+                throw new IllegalStateException("Concurrent tasks did not finish in time");
+            }
+        }
+        return List.copyOf(failures);
+    }
+
+    public static void authenticate(User user) {
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @FunctionalInterface
+    public interface IntTask {
+        void run(int index) throws Exception;
+    }
+}
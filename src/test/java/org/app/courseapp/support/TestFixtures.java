@@ -0,0 +1,108 @@
+package org.app.courseapp.support;
+
+import lombok.RequiredArgsConstructor;
+import org.app.courseapp.model.Course;
+import org.app.courseapp.model.UserRole;
+import org.app.courseapp.model.users.Parent;
+import org.app.courseapp.model.users.Specialist;
+import org.app.courseapp.repository.CourseRepository;
+import org.app.courseapp.repository.ParentRepository;
+import org.app.courseapp.repository.SpecialistRepository;
+import org.app.courseapp.repository.UserRoleRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Данные для интеграционных тестов: каждый тест создаёт своих пользователей и курсы
+ * и удаляет их в cleanup(), чтобы не зависеть от содержимого базы.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestFixtures {
+
+    private final ParentRepository parentRepository;
+    private final SpecialistRepository specialistRepository;
+    private final CourseRepository courseRepository;
+    private final UserRoleRepository userRoleRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Long> courseIds = new ArrayList<>();
+
+    public Parent parent() {
+        Parent parent = Parent.builder()
+                .email("test-parent-" + UUID.randomUUID() + "@example.com")
+                .password("test")
+                .roles(roles("ROLE_PARENT"))
+                .build();
+        parent = parentRepository.save(parent);
+        userIds.add(parent.getId());
+        return parent;
+    }
+
+    public Specialist specialist() {
+        Specialist specialist = Specialist.builder()
+                .email("test-specialist-" + UUID.randomUUID() + "@example.com")
+                .password("test")
+                .roles(roles("ROLE_SPECIALIST"))
+                .build();
+        specialist = specialistRepository.save(specialist);
+        userIds.add(specialist.getId());
+        return specialist;
+    }
+
+    public Course course() {
+        Course course = new Course();
+        course.setTitle("Test course " + UUID.randomUUID());
+        course.setDurationDays(1);
+        course.setCourseOrder(courseRepository.findNextCourseOrder());
+        course = courseRepository.save(course);
+        courseIds.add(course.getId());
+        return course;
+    }
+
+    public JdbcTemplate jdbc() {
+        return jdbcTemplate;
+    }
+
+    // Удаляет всё, что ссылается на созданных пользователей и курсы, затем их самих
+    public void cleanup() {
+        for (Long courseId : courseIds) {
+            jdbcTemplate.update("DELETE FROM review_likes WHERE course_review_id IN "
+                    + "(SELECT id FROM course_reviews WHERE course_id = ?)", courseId);
+            jdbcTemplate.update("DELETE FROM course_reviews WHERE course_id = ?", courseId);
+            jdbcTemplate.update("DELETE FROM course_rating_summary WHERE course_id = ?", courseId);
+            jdbcTemplate.update("DELETE FROM courses WHERE id = ?", courseId);
+        }
+        for (Long userId : userIds) {
+            jdbcTemplate.update("DELETE FROM review_likes WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM bookings WHERE parent_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM bookings WHERE slot_id IN "
+                    + "(SELECT id FROM specialist_slots WHERE specialist_id = ?)", userId);
+            jdbcTemplate.update("UPDATE specialist_slots SET held_by_parent_id = NULL, held_until = NULL, "
+                    + "booked_by_parent_id = NULL WHERE held_by_parent_id = ? OR booked_by_parent_id = ?",
+                    userId, userId);
+            jdbcTemplate.update("DELETE FROM specialist_slots WHERE specialist_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM specialist_schedule_exceptions WHERE specialist_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM specialist_schedule_rules WHERE specialist_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM user_roles WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM parents WHERE id = ?", userId);
+            jdbcTemplate.update("DELETE FROM specialists WHERE id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+        courseIds.clear();
+        userIds.clear();
+    }
+
+    private Set<UserRole> roles(String name) {
+        UserRole role = userRoleRepository.findByName(name)
+                .orElseThrow(() -> new IllegalStateException("Role " + name + " is not initialized"));
+        return new HashSet<>(Set.of(role));
+    }
+}
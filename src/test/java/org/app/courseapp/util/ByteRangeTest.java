@@ -0,0 +1,105 @@
+package org.app.courseapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteRangeTest {
+
+    private static final long SIZE = 1000;
+    private static final long MAX = 10_000;
+
+    @Test
+    void closedRange() {
+        assertEquals(new ByteRange(0, 99), ByteRange.parse("bytes=0-99", SIZE, MAX));
+    }
+
+    @Test
+    void openEndedRangeRunsToEndOfFile() {
+        assertEquals(new ByteRange(500, 999), ByteRange.parse("bytes=500-", SIZE, MAX));
+    }
+
+    @Test
+    void openEndedRangeIsCappedByMaxLength() {
+        assertEquals(new ByteRange(100, 299), ByteRange.parse("bytes=100-", SIZE, 200));
+    }
+
+    @Test
+    void suffixRangeTakesLastBytes() {
+        assertEquals(new ByteRange(900, 999), ByteRange.parse("bytes=-100", SIZE, MAX));
+    }
+
+    @Test
+    void suffixLongerThanFileTakesWholeFile() {
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=-5000", SIZE, MAX));
+    }
+
+    @Test
+    void zeroSuffixIsUnsatisfiable() {
+        assertTrue(ByteRange.isApplicable("bytes=-0"));
+        assertNull(ByteRange.parse("bytes=-0", SIZE, MAX));
+    }
+
+    @Test
+    void endPastEofIsClamped() {
+        assertEquals(new ByteRange(900, 999), ByteRange.parse("bytes=900-5000", SIZE, MAX));
+    }
+
+    @Test
+    void startPastEofIsUnsatisfiable() {
+        assertTrue(ByteRange.isApplicable("bytes=1000-"));
+        assertNull(ByteRange.parse("bytes=1000-", SIZE, MAX));
+        assertNull(ByteRange.parse("bytes=5000-6000", SIZE, MAX));
+    }
+
+    @Test
+    void anyRangeOfEmptyFileIsUnsatisfiable() {
+        assertNull(ByteRange.parse("bytes=0-", 0, MAX));
+    }
+
+    @Test
+    void multiRangeTakesFirstRange() {
+        assertEquals(new ByteRange(0, 9), ByteRange.parse("bytes=0-9, 20-29, -5", SIZE, MAX));
+    }
+
+    @Test
+    void multiRangeSkipsUnsatisfiableRanges() {
+        assertEquals(new ByteRange(20, 29), ByteRange.parse("bytes=5000-, 20-29", SIZE, MAX));
+        assertNull(ByteRange.parse("bytes=5000-, 6000-7000", SIZE, MAX));
+    }
+
+    @Test
+    void unitIsCaseInsensitive() {
+        assertEquals(new ByteRange(0, 9), ByteRange.parse("Bytes=0-9", SIZE, MAX));
+    }
+
+    @Test
+    void otherUnitIsIgnored() {
+        assertFalse(ByteRange.isApplicable("items=0-9"));
+        assertFalse(ByteRange.isApplicable("0-9"));
+    }
+
+    @Test
+    void malformedHeaderIsIgnored() {
+        assertFalse(ByteRange.isApplicable(null));
+        assertFalse(ByteRange.isApplicable("bytes="));
+        assertFalse(ByteRange.isApplicable("bytes=-"));
+        assertFalse(ByteRange.isApplicable("bytes=abc"));
+        assertFalse(ByteRange.isApplicable("bytes=1-2-3"));
+        assertFalse(ByteRange.isApplicable("bytes=0-9,x"));
+    }
+
+    @Test
+    void reversedRangeIsInvalidNotUnsatisfiable() {
+        assertFalse(ByteRange.isApplicable("bytes=500-100"));
+    }
+
+    @Test
+    void hugeNumbersDoNotOverflow() {
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=0-99999999999999999999", SIZE, MAX));
+        assertNull(ByteRange.parse("bytes=99999999999999999999-", SIZE, MAX));
+    }
+}